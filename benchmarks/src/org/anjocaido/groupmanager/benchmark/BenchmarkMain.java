@@ -0,0 +1,157 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Entry point for benchmarks.jar.
+ *
+ * Accepts the usual JMH command line, but writes JSON results
+ * by default so runs can be compared between commits:
+ *
+ * java -Dgm.label=$(git rev-parse --short HEAD) -jar target/benchmarks.jar
+ *
+ * writes target/jmh-result-[label].json
+ *
+ * The GC profiler is always added, and the run fails if an allocation
+ * free benchmark allocates more than gm.allocLimit bytes per operation.
+ *
+ * @author ElgarL
+ */
+public final class BenchmarkMain {
+
+	/**
+	 * Benchmarks which must not allocate.
+	 */
+	private static final String[] ALLOCATION_FREE = { "PermissionEngineBenchmark.checkPermissionCode" }; //$NON-NLS-1$
+
+	/**
+	 * The GC profiler's bytes allocated per operation.
+	 */
+	private static final String ALLOCATION_RATE = "gc.alloc.rate.norm"; //$NON-NLS-1$
+
+	private BenchmarkMain() {}
+
+	public static void main(String[] args) throws Exception {
+
+		CommandLineOptions cmd = new CommandLineOptions(args);
+
+		if (cmd.shouldHelp()) {
+			cmd.showHelp();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+
+		if (!cmd.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+
+		if (!hasGCProfiler(cmd))
+			options.addProfiler(GCProfiler.class);
+
+		if (!cmd.getResult().hasValue()) {
+			File result = new File("target", "jmh-result-" + System.getProperty("gm.label", "latest") + ".json"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			result.getParentFile().mkdirs();
+			options.result(result.getPath());
+		}
+
+		Runner runner = new Runner(options.build());
+
+		if (cmd.shouldList()) {
+			runner.list();
+			return;
+		}
+		List<String> failures = checkAllocation(runner.run(), Double.parseDouble(System.getProperty("gm.allocLimit", "1.0"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+		if (!failures.isEmpty()) {
+			failures.forEach(System.err::println);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Was the GC profiler already asked for on the command line.
+	 */
+	private static boolean hasGCProfiler(CommandLineOptions cmd) {
+
+		for (ProfilerConfig profiler : cmd.getProfilers()) {
+			String name = profiler.getKlass();
+
+			if (name.equals("gc") || name.equals(GCProfiler.class.getName()) || name.equals(GCProfiler.class.getSimpleName())) //$NON-NLS-1$
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Compare the allocation of each allocation free benchmark against the limit.
+	 *
+	 * @param results	the results of the run.
+	 * @param limit		bytes per operation allowed.
+	 * @return a message for each benchmark over the limit.
+	 */
+	static List<String> checkAllocation(Collection<RunResult> results, double limit) {
+
+		List<String> failures = new ArrayList<>();
+
+		for (RunResult result : results) {
+			String benchmark = result.getParams().getBenchmark();
+
+			for (String name : ALLOCATION_FREE) {
+				if (!benchmark.endsWith(name))
+					continue;
+
+				Result<?> allocation = result.getSecondaryResults().get(ALLOCATION_RATE);
+
+				if (allocation == null) {
+					failures.add(String.format("%s %s: no %s reported", benchmark, describe(result), ALLOCATION_RATE)); //$NON-NLS-1$
+				} else if (allocation.getScore() > limit) {
+					failures.add(String.format("%s %s: allocated %.2f B/op, limit %.2f B/op", benchmark, describe(result), allocation.getScore(), limit)); //$NON-NLS-1$
+				}
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * The world parameters of a result.
+	 */
+	private static String describe(RunResult result) {
+
+		StringBuilder params = new StringBuilder();
+
+		for (String key : result.getParams().getParamsKeys())
+			params.append(key).append('=').append(result.getParams().getParam(key)).append(' ');
+
+		return params.toString().trim();
+	}
+}
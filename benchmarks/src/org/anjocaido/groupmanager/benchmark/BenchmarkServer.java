@@ -0,0 +1,188 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.anjocaido.groupmanager.GroupManager;
+import org.anjocaido.groupmanager.permissions.BukkitPermissions;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.SimplePluginManager;
+
+/**
+ * The minimum of a Bukkit Server needed to run
+ * the permission engine outside of Minecraft.
+ *
+ * The Server is a dynamic proxy which reports online mode,
+ * no online players and a real SimplePluginManager
+ * so permissions can be registered with children.
+ *
+ * @author ElgarL
+ */
+public final class BenchmarkServer {
+
+	private static final Logger logger = Logger.getLogger("GroupManager-Benchmark"); //$NON-NLS-1$
+
+	private static Server server;
+	private static PluginManager pluginManager;
+
+	private BenchmarkServer() {}
+
+	/**
+	 * Install the proxy Server and an empty superperms handler.
+	 * Safe to call more than once.
+	 *
+	 * @return the PluginManager used to register permissions.
+	 */
+	public static synchronized PluginManager install() {
+
+		if (server != null)
+			return pluginManager;
+
+		server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[] { Server.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+			case "getPluginManager": //$NON-NLS-1$
+				return pluginManager;
+			case "getLogger": //$NON-NLS-1$
+				return logger;
+			case "getOnlineMode": //$NON-NLS-1$
+				return true;
+			case "getName": //$NON-NLS-1$
+			case "getVersion": //$NON-NLS-1$
+			case "getBukkitVersion": //$NON-NLS-1$
+				return "Benchmark"; //$NON-NLS-1$
+			case "hashCode": //$NON-NLS-1$
+				return System.identityHashCode(proxy);
+			case "equals": //$NON-NLS-1$
+				return proxy == args[0];
+			case "toString": //$NON-NLS-1$
+				return "BenchmarkServer"; //$NON-NLS-1$
+			}
+			return defaultValue(method.getReturnType());
+		});
+
+		pluginManager = new SimplePluginManager(server, new SimpleCommandMap(server));
+		Bukkit.setServer(server);
+
+		GroupManager.BukkitPermissions = createBukkitPermissions();
+		return pluginManager;
+	}
+
+	/**
+	 * Create an online Player proxy.
+	 *
+	 * It holds no Bukkit permissions of its own,
+	 * so every check is answered by GroupManager.
+	 *
+	 * @param uuid	the UUID of the Player.
+	 * @param name	the name of the Player.
+	 * @return a Player.
+	 */
+	public static Player createPlayer(UUID uuid, String name) {
+
+		return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] { Player.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+			case "getUniqueId": //$NON-NLS-1$
+				return uuid;
+			case "getName": //$NON-NLS-1$
+				return name;
+			case "isOnline": //$NON-NLS-1$
+				return true;
+			case "hashCode": //$NON-NLS-1$
+				return uuid.hashCode();
+			case "equals": //$NON-NLS-1$
+				return proxy == args[0];
+			case "toString": //$NON-NLS-1$
+				return name;
+			}
+			return defaultValue(method.getReturnType());
+		});
+	}
+
+	/**
+	 * BukkitPermissions registers its listeners against the plugin
+	 * as it is constructed, which needs a running server.
+	 * Allocate one without its constructor and supply its maps.
+	 */
+	private static BukkitPermissions createBukkitPermissions() {
+
+		try {
+			Field theUnsafe = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe"); //$NON-NLS-1$ //$NON-NLS-2$
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+
+			BukkitPermissions permissions = (BukkitPermissions) unsafe.getClass().getMethod("allocateInstance", Class.class).invoke(unsafe, BukkitPermissions.class); //$NON-NLS-1$
+
+			for (String name : new String[] { "attachments", "registeredPermissions" }) { //$NON-NLS-1$ //$NON-NLS-2$
+				Field field = BukkitPermissions.class.getDeclaredField(name);
+				field.setAccessible(true);
+				field.set(permissions, new LinkedHashMap<>());
+			}
+			return permissions;
+
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Unable to create BukkitPermissions", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * The value returned by any Server or Player method we do not implement.
+	 */
+	private static Object defaultValue(Class<?> type) {
+
+		if (type == boolean.class)
+			return false;
+		if (type == int.class)
+			return 0;
+		if (type == long.class)
+			return 0L;
+		if (type == double.class)
+			return 0D;
+		if (type == float.class)
+			return 0F;
+		if (type == short.class)
+			return (short) 0;
+		if (type == byte.class)
+			return (byte) 0;
+		if (type == char.class)
+			return (char) 0;
+		if (type == List.class)
+			return Collections.emptyList();
+		if (type == Set.class)
+			return Collections.emptySet();
+		if (type == Collection.class)
+			return Collections.emptyList();
+		return null;
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.anjocaido.groupmanager.GroupManager;
+import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.data.User;
+import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
+import org.anjocaido.groupmanager.permissions.AnjoPermissionsHandler;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.Permission;
+import org.bukkit.plugin.PluginManager;
+
+/**
+ * A generated world of Groups and a single User, built without a server.
+ *
+ * Groups are arranged in inheritance chains 'depth' long.
+ * The User is a member of the first chain and has the heads
+ * of the next two chains as sub-groups.
+ *
+ * Every node looks like 'pluginP.subS.nodeK'. A share of them,
+ * set by 'wildcards', are written as 'pluginP.subS.*' or 'pluginP.*'.
+ * The same tree is registered with Bukkit so child nodes resolve.
+ *
+ * @author ElgarL
+ */
+public final class SyntheticWorld {
+
+	public static final int PLUGINS = 20;
+	public static final int SUBS = 10;
+	public static final int LEAVES = 20;
+
+	private static final int QUERIES = 256;
+
+	public final WorldDataHolder holder;
+	public final AnjoPermissionsHandler handler;
+	public final User user;
+	public final String userId;
+	public final Player player;
+
+	/**
+	 * Permissions to check, half of which are held.
+	 * Length is a power of two.
+	 */
+	public final String[] queries = new String[QUERIES];
+
+	/**
+	 * Pairs of stored nodes and permissions for comparePermissionString.
+	 */
+	public final String[] accessNodes = new String[QUERIES];
+	public final String[] targetNodes = new String[QUERIES];
+
+	private final Random random;
+
+	/**
+	 * Generate a world.
+	 *
+	 * @param groups	number of groups (N).
+	 * @param depth		inheritance depth (D).
+	 * @param nodes		permission nodes per group (M).
+	 * @param wildcards	share of nodes which are wildcards (W), 0.0 - 1.0.
+	 * @param seed		random seed so runs are comparable.
+	 */
+	public SyntheticWorld(int groups, int depth, int nodes, double wildcards, long seed) {
+
+		random = new Random(seed);
+		registerBukkitPermissions(BenchmarkServer.install());
+
+		boolean loaded = GroupManager.isLoaded();
+		GroupManager.setLoaded(false);
+
+		holder = new WorldDataHolder("benchmark"); //$NON-NLS-1$
+
+		List<Group> all = new ArrayList<>(groups);
+		for (int i = 0; i < groups; i++)
+			all.add(holder.createGroup("group" + i)); //$NON-NLS-1$
+		holder.setDefaultGroup(all.get(0));
+
+		for (int i = 0; i < groups; i++) {
+			Group group = all.get(i);
+
+			// Chains of 'depth' groups.
+			if ((i + 1) < groups && (i + 1) % depth != 0)
+				group.addInherits(all.get(i + 1));
+
+			for (int n = 0; n < nodes; n++)
+				group.addPermission(randomNode(wildcards, true));
+		}
+
+		userId = UUID.nameUUIDFromBytes(("benchmark" + seed).getBytes()).toString(); //$NON-NLS-1$
+		user = holder.createUser(userId);
+		user.setLastName("Benchmark"); //$NON-NLS-1$
+
+		for (int n = 0; n < Math.max(1, nodes / 10); n++)
+			user.addPermission(randomNode(wildcards, true));
+
+		// Sub-groups are the heads of the next chains.
+		for (int i = depth; i < groups && i <= depth * 2; i += depth)
+			user.addSubGroup(all.get(i));
+
+		// Only the last sub-group has a prefix, so lookups fall all the way through.
+		all.get(Math.min(groups - 1, depth * 2)).getVariables().addVar("prefix", "[Benchmark]"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		handler = holder.getPermissionsHandler();
+		player = BenchmarkServer.createPlayer(UUID.fromString(userId), "Benchmark"); //$NON-NLS-1$
+
+		List<String> held = new ArrayList<>(handler.getAllPlayersPermissions(userId, false));
+		for (int q = 0; q < QUERIES; q++) {
+			String node;
+			if ((q & 1) == 0 && !held.isEmpty()) {
+				node = held.get(random.nextInt(held.size()));
+				if (node.startsWith("+") || node.startsWith("-")) //$NON-NLS-1$ //$NON-NLS-2$
+					node = node.substring(1);
+				if (node.endsWith("*")) //$NON-NLS-1$
+					node = node.substring(0, node.length() - 1) + "node" + random.nextInt(LEAVES); //$NON-NLS-1$
+			} else {
+				node = randomNode(0, false);
+			}
+			queries[q] = node;
+			accessNodes[q] = randomNode(wildcards, true);
+			targetNodes[q] = (q & 1) == 0 ? accessNodes[q].replace("*", "node0").replace("+", "").replace("-", "") : randomNode(0, false); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		}
+
+		GroupManager.setLoaded(loaded);
+	}
+
+	/**
+	 * Generate a node, wildcard or not, optionally negated or an exception.
+	 */
+	private String randomNode(double wildcards, boolean signed) {
+
+		String prefix = ""; //$NON-NLS-1$
+		if (signed) {
+			int roll = random.nextInt(100);
+			if (roll < 2)
+				prefix = "+"; //$NON-NLS-1$
+			else if (roll < 12)
+				prefix = "-"; //$NON-NLS-1$
+		}
+
+		int plugin = random.nextInt(PLUGINS);
+		if (random.nextDouble() < wildcards) {
+			if (random.nextBoolean())
+				return prefix + "plugin" + plugin + ".*"; //$NON-NLS-1$ //$NON-NLS-2$
+			return prefix + "plugin" + plugin + ".sub" + random.nextInt(SUBS) + ".*"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return prefix + "plugin" + plugin + ".sub" + random.nextInt(SUBS) + ".node" + random.nextInt(LEAVES); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * Register the node tree with Bukkit, once.
+	 */
+	private static synchronized void registerBukkitPermissions(PluginManager manager) {
+
+		if (manager.getPermission("plugin0.*") != null) //$NON-NLS-1$
+			return;
+
+		for (int p = 0; p < PLUGINS; p++) {
+			Map<String, Boolean> subs = new LinkedHashMap<>();
+
+			for (int s = 0; s < SUBS; s++) {
+				Map<String, Boolean> leaves = new LinkedHashMap<>();
+				for (int k = 0; k < LEAVES; k++)
+					leaves.put("plugin" + p + ".sub" + s + ".node" + k, true); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+				String sub = "plugin" + p + ".sub" + s + ".*"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				manager.addPermission(new Permission(sub, leaves));
+				subs.put(sub, true);
+			}
+			manager.addPermission(new Permission("plugin" + p + ".*", subs)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		GroupManager.getBukkitPermissions().collectPermissions();
+	}
+}
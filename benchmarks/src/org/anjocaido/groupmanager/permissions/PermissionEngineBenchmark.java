@@ -0,0 +1,141 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.anjocaido.groupmanager.GroupManager;
+import org.anjocaido.groupmanager.benchmark.SyntheticWorld;
+import org.anjocaido.groupmanager.utils.PermissionCheckResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the AnjoPermissionsHandler permission engine.
+ *
+ * Lives in the permissions package so package private
+ * methods (BukkitPermissions.sort) can be measured directly.
+ *
+ * BenchmarkMain runs these with the GC profiler and fails
+ * the run if checkPermissionCode allocates.
+ *
+ * @author ElgarL
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionEngineBenchmark {
+
+	/**
+	 * Number of groups (N).
+	 */
+	@Param({ "10", "100" })
+	public int groups;
+
+	/**
+	 * Inheritance depth (D).
+	 */
+	@Param({ "1", "5" })
+	public int depth;
+
+	/**
+	 * Permission nodes per group (M).
+	 */
+	@Param({ "10", "100" })
+	public int nodes;
+
+	/**
+	 * Share of nodes which are wildcards (W).
+	 */
+	@Param({ "0.0", "0.25" })
+	public double wildcards;
+
+	private SyntheticWorld world;
+	private List<String> sortInput;
+	private int cursor;
+
+	@Setup
+	public void setup() {
+
+		world = new SyntheticWorld(groups, depth, nodes, wildcards, 42L);
+		sortInput = new ArrayList<>(world.handler.getAllPlayersPermissions(world.userId, false));
+	}
+
+	private int next() {
+
+		return cursor++ & (world.queries.length - 1);
+	}
+
+	@Benchmark
+	public PermissionCheckResult checkFullGMPermission() {
+
+		return world.handler.checkFullGMPermission(world.user, world.queries[next()], false);
+	}
+
+	@Benchmark
+	public int checkPermissionCode() {
+
+		return world.handler.checkPermissionCode(world.player, world.queries[next()]);
+	}
+
+	@Benchmark
+	public Set<String> getAllPlayersPermissions() {
+
+		return world.handler.getAllPlayersPermissions(world.userId, false);
+	}
+
+	@Benchmark
+	public Set<String> getAllPlayersPermissionsWithChildren() {
+
+		return world.handler.getAllPlayersPermissions(world.userId, true);
+	}
+
+	@Benchmark
+	public PermissionCheckResult.Type comparePermissionString() {
+
+		int index = next();
+		return world.handler.comparePermissionString(world.accessNodes[index], world.targetNodes[index]);
+	}
+
+	@Benchmark
+	public List<String> bukkitSort() {
+
+		return GroupManager.getBukkitPermissions().sort(sortInput);
+	}
+
+	@Benchmark
+	public String getUserPrefix() {
+
+		return world.handler.getUserPrefix(world.userId);
+	}
+}
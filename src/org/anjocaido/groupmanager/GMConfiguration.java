@@ -36,6 +36,13 @@ import org.yaml.snakeyaml.reader.UnicodeReader;
  */
 public class GMConfiguration {
 
+	public static final int DEFAULT_MISS_CACHE_SIZE = 256;
+	public static final int DEFAULT_REFRESH_BUDGET = 5;
+	public static final int DEFAULT_COMMAND_UPDATE_DELAY = 5;
+	public static final int DEFAULT_IO_THREADS = 2;
+	public static final int DEFAULT_IO_QUEUE_SIZE = 1000;
+	public static final boolean DEFAULT_SHARDED_USERS = false;
+
 	private String language;
 	private boolean allowCommandBlocks;
 	private boolean opOverride;
@@ -58,6 +65,13 @@ public class GMConfiguration {
 	private long userExpires;
 	private boolean timedEnabled;
 
+	private int missCacheSize;
+	private int refreshBudget;
+	private int commandUpdateDelay;
+	private int ioThreads;
+	private int ioQueueSize;
+	private boolean shardedUsers;
+
 	private String loggerLevel; //$NON-NLS-1$
 	private Map<String, Object> mirrorsMap;
 
@@ -92,6 +106,13 @@ public class GMConfiguration {
 		userExpires = Tasks.parsePeriod("90d"); //$NON-NLS-1$
 		
 		timedEnabled = true;
+
+		missCacheSize = DEFAULT_MISS_CACHE_SIZE;
+		refreshBudget = DEFAULT_REFRESH_BUDGET;
+		commandUpdateDelay = DEFAULT_COMMAND_UPDATE_DELAY;
+		ioThreads = DEFAULT_IO_THREADS;
+		ioQueueSize = DEFAULT_IO_QUEUE_SIZE;
+		shardedUsers = DEFAULT_SHARDED_USERS;
 		
 		loggerLevel = "INFO"; //$NON-NLS-1$
 	}
@@ -294,6 +315,72 @@ public class GMConfiguration {
 				GroupManager.logger.log(Level.SEVERE, nodeError("purge"), ex); //$NON-NLS-1$
 			}
 
+			/*
+			 * performance node (optional, older configs do not have it).
+			 */
+			if (getElement("settings", GMconfig).containsKey("performance")) { //$NON-NLS-1$ //$NON-NLS-2$
+				try {
+					section = getElement("performance", getElement("settings", GMconfig)); //$NON-NLS-1$ //$NON-NLS-2$
+
+					if (section.containsKey("miss_cache_size")) { //$NON-NLS-1$
+						try {
+							missCacheSize = Math.max(0, Integer.parseInt(section.get("miss_cache_size").toString())); //$NON-NLS-1$
+						} catch (Exception ex) {
+							GroupManager.logger.log(Level.SEVERE, nodeError("miss_cache_size"), ex); //$NON-NLS-1$
+							missCacheSize = DEFAULT_MISS_CACHE_SIZE;
+						}
+					}
+
+					if (section.containsKey("refresh_budget")) { //$NON-NLS-1$
+						try {
+							refreshBudget = Math.max(0, Integer.parseInt(section.get("refresh_budget").toString())); //$NON-NLS-1$
+						} catch (Exception ex) {
+							GroupManager.logger.log(Level.SEVERE, nodeError("refresh_budget"), ex); //$NON-NLS-1$
+							refreshBudget = DEFAULT_REFRESH_BUDGET;
+						}
+					}
+
+					if (section.containsKey("command_update_delay")) { //$NON-NLS-1$
+						try {
+							commandUpdateDelay = Math.max(0, Integer.parseInt(section.get("command_update_delay").toString())); //$NON-NLS-1$
+						} catch (Exception ex) {
+							GroupManager.logger.log(Level.SEVERE, nodeError("command_update_delay"), ex); //$NON-NLS-1$
+							commandUpdateDelay = DEFAULT_COMMAND_UPDATE_DELAY;
+						}
+					}
+
+					if (section.containsKey("io_threads")) { //$NON-NLS-1$
+						try {
+							ioThreads = Math.max(1, Integer.parseInt(section.get("io_threads").toString())); //$NON-NLS-1$
+						} catch (Exception ex) {
+							GroupManager.logger.log(Level.SEVERE, nodeError("io_threads"), ex); //$NON-NLS-1$
+							ioThreads = DEFAULT_IO_THREADS;
+						}
+					}
+
+					if (section.containsKey("io_queue_size")) { //$NON-NLS-1$
+						try {
+							ioQueueSize = Math.max(1, Integer.parseInt(section.get("io_queue_size").toString())); //$NON-NLS-1$
+						} catch (Exception ex) {
+							GroupManager.logger.log(Level.SEVERE, nodeError("io_queue_size"), ex); //$NON-NLS-1$
+							ioQueueSize = DEFAULT_IO_QUEUE_SIZE;
+						}
+					}
+
+					if (section.containsKey("sharded_users")) { //$NON-NLS-1$
+						try {
+							shardedUsers = (boolean) section.get("sharded_users"); //$NON-NLS-1$
+						} catch (Exception ex) {
+							GroupManager.logger.log(Level.SEVERE, nodeError("sharded_users"), ex); //$NON-NLS-1$
+							shardedUsers = DEFAULT_SHARDED_USERS;
+						}
+					}
+
+				} catch (Exception ex) {
+					GroupManager.logger.log(Level.SEVERE, nodeError("performance"), ex); //$NON-NLS-1$
+				}
+			}
+
 
 			Object level = ((Map<String, String>) getElement("settings", GMconfig).get("logging")).get("level"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			if (level != null && !(level instanceof Boolean))
@@ -380,6 +467,54 @@ public class GMConfiguration {
 		return timedEnabled;
 	}
 
+	/**
+	 * @return the number of missed nodes remembered per online Player, 0 to disable.
+	 */
+	public int getMissCacheSize() {
+
+		return missCacheSize;
+	}
+
+	/**
+	 * @return milliseconds per tick spent refreshing player permissions, 0 for no limit.
+	 */
+	public int getRefreshBudget() {
+
+		return refreshBudget;
+	}
+
+	/**
+	 * @return ticks to gather a players permission changes before updating their commands, 0 for no delay.
+	 */
+	public int getCommandUpdateDelay() {
+
+		return commandUpdateDelay;
+	}
+
+	/**
+	 * @return the number of threads GroupManager loads and saves data on.
+	 */
+	public int getIOThreads() {
+
+		return ioThreads;
+	}
+
+	/**
+	 * @return the number of tasks which may wait for one of those threads.
+	 */
+	public int getIOQueueSize() {
+
+		return ioQueueSize;
+	}
+
+	/**
+	 * @return true if each worlds Users are stored across many small files, rather than one users.yml.
+	 */
+	public boolean isShardedUsers() {
+
+		return shardedUsers;
+	}
+
 	public int getSaveInterval() {
 
 		return saveInterval;
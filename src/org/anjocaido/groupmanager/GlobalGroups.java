@@ -23,8 +23,11 @@ import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.anjocaido.groupmanager.data.DataUnit;
 import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.dataholder.InheritanceGraph;
 import org.anjocaido.groupmanager.events.GMGroupEvent;
+import org.anjocaido.groupmanager.permissions.RefreshTracker;
 import org.anjocaido.groupmanager.utils.PermissionCheckResult;
 
 /**
@@ -74,6 +77,9 @@ public class GlobalGroups {
 	public void setGroupsChanged(boolean haveGroupsChanged) {
 
 		this.haveGroupsChanged = haveGroupsChanged;
+
+		if (haveGroupsChanged)
+			DataUnit.bumpGeneration();
 	}
 
 	/**
@@ -98,7 +104,7 @@ public class GlobalGroups {
 		GroupManager.setLoaded(loaded);	// Restore original state.
 		
 		if (GroupManager.isLoaded()) {
-			plugin.getWorldsHolder().refreshData(null);
+			plugin.getWorldsHolder().scheduleRefresh(null);
 			GroupManager.getGMEventHandler().callEvent(groupToAdd, GMGroupEvent.Action.GROUP_ADDED);
 		}
 	}
@@ -115,10 +121,12 @@ public class GlobalGroups {
 		if (!groups.containsKey(newGroup.getName().toLowerCase())) {
 			
 			groups.put(newGroup.getName().toLowerCase(), newGroup);
+			InheritanceGraph.globalGroupsChanged();
+			RefreshTracker.getInstance().markAll();
 			this.setGroupsChanged(true);
 			
 			if (GroupManager.isLoaded()) {
-				plugin.getWorldsHolder().refreshData(null);
+				plugin.getWorldsHolder().scheduleRefresh(null);
 				GroupManager.getGMEventHandler().callEvent(newGroup, GMGroupEvent.Action.GROUP_ADDED);
 			}
 			
@@ -141,12 +149,14 @@ public class GlobalGroups {
 			GroupManager.setLoaded(false); // Disable so we can push all data without triggering a save.
 			
 			groups.remove(groupName.toLowerCase());
+			InheritanceGraph.globalGroupsChanged();
+			RefreshTracker.getInstance().markAll();
 			this.setGroupsChanged(true);
 			
 			GroupManager.setLoaded(loaded);	// Restore original state.
 			
 			if (GroupManager.isLoaded()) {
-				plugin.getWorldsHolder().refreshData(null);
+				plugin.getWorldsHolder().scheduleRefresh(null);
 				GroupManager.getGMEventHandler().callEvent(groupName.toLowerCase(), GMGroupEvent.Action.GROUP_REMOVED);
 			}
 			return true;
@@ -225,6 +235,9 @@ public class GlobalGroups {
 	 */
 	public void resetGlobalGroups() {
 		this.groups.clear();
+		InheritanceGraph.globalGroupsChanged();
+		RefreshTracker.getInstance().markAll();
+		DataUnit.bumpGeneration();
 	}
 
 
@@ -88,6 +88,7 @@ import org.anjocaido.groupmanager.placeholder.GMPlaceholderExpansion;
 import org.anjocaido.groupmanager.tasks.BukkitPermsUpdateTask;
 import org.anjocaido.groupmanager.tasks.UpdateTask;
 import org.anjocaido.groupmanager.utils.BukkitWrapper;
+import org.anjocaido.groupmanager.utils.GMExecutor;
 import org.anjocaido.groupmanager.utils.OfflinePlayerCache;
 import org.anjocaido.groupmanager.utils.Tasks;
 import org.bukkit.Bukkit;
@@ -153,6 +154,10 @@ public class GroupManager extends JavaPlugin {
 
 	public void onDisable(boolean restarting) {
 
+		// The scheduler won't run anything still waiting on a refresh.
+		if (worldsHolder != null)
+			worldsHolder.runPendingTasks();
+
 		setLoaded(false);
 
 		if (!restarting) {
@@ -177,6 +182,10 @@ public class GroupManager extends JavaPlugin {
 			BukkitPermissions.removeAllAttachments();
 		}
 
+		// Let any saves still queued finish before we go.
+		if (!GMExecutor.getInstance().shutdown(30, TimeUnit.SECONDS))
+			GroupManager.logger.log(Level.WARNING, "Timed out waiting for queued data to save: " + GMExecutor.getInstance()); //$NON-NLS-1$
+
 		// log that we are disabled.
 		PluginDescriptionFile pdfFile = this.getDescription();
 		GroupManager.logger.log(Level.INFO, String.format(Messages.getString("GroupManager.DISABLED"), pdfFile.getVersion())); //$NON-NLS-1$
@@ -201,6 +210,11 @@ public class GroupManager extends JavaPlugin {
 			config = new GMConfiguration(this);
 			config.load();
 
+			/*
+			 * Start our IO threads before any data loads, so it can use them.
+			 */
+			GMExecutor.getInstance().start(config.getIOThreads(), config.getIOQueueSize());
+
 			/*
 			 * Configure the worlds holder.
 			 */
@@ -408,6 +422,12 @@ public class GroupManager extends JavaPlugin {
 
 	public void enableScheduler() {
 
+		/*
+		 * Threads to load and save data on.
+		 * These outlive the scheduler, until onDisable.
+		 */
+		GMExecutor.getInstance().start(getGMConfig().getIOThreads(), getGMConfig().getIOQueueSize());
+
 		if (worldsHolder != null) {
 			disableScheduler();
 			/*
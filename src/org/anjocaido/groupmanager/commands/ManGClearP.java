@@ -77,7 +77,7 @@ public class ManGClearP extends BaseCommand {
 		GroupManager.setLoaded(loaded);
 		sender.sendMessage(ChatColor.YELLOW + String.format(Messages.getString("REMOVED_ALL_PERMISSIONS_GROUP"), auxGroup.getName())); //$NON-NLS-1$
 
-		plugin.getWorldsHolder().refreshData(null);
+		plugin.getWorldsHolder().scheduleRefresh(null);
 
 		return true;
 	}
@@ -3,11 +3,10 @@
  */
 package org.anjocaido.groupmanager.commands;
 
-import java.util.concurrent.CompletableFuture;
-
 import org.anjocaido.groupmanager.GroupManager;
 import org.anjocaido.groupmanager.localization.Messages;
 import org.anjocaido.groupmanager.storage.CoreYaml;
+import org.anjocaido.groupmanager.utils.GMExecutor;
 import org.bukkit.ChatColor;
 import org.jetbrains.annotations.NotNull;
 
@@ -27,7 +26,7 @@ public class ManImport extends BaseCommand {
 			sender.sendMessage(ChatColor.RED + "You can only import when using SQL.");
 			return true;
 		}
-		CompletableFuture.runAsync(() -> {
+		GMExecutor.getInstance().runAsync(() -> {
 			try {
 				/*
 				 * Obtain a lock so we can save.
@@ -19,11 +19,11 @@ package org.anjocaido.groupmanager.commands;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
 import org.anjocaido.groupmanager.GroupManager;
 import org.anjocaido.groupmanager.events.GMSystemEvent;
 import org.anjocaido.groupmanager.localization.Messages;
+import org.anjocaido.groupmanager.utils.GMExecutor;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -63,7 +63,7 @@ public class ManLoad extends BaseCommand {
 				}
 			}
 
-			CompletableFuture.runAsync(() -> {
+			GMExecutor.getInstance().runAsync(() -> {
 
 				try {
 					/*
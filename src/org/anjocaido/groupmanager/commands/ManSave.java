@@ -19,11 +19,11 @@ package org.anjocaido.groupmanager.commands;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.anjocaido.groupmanager.GroupManager;
 import org.anjocaido.groupmanager.localization.Messages;
+import org.anjocaido.groupmanager.utils.GMExecutor;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -50,7 +50,7 @@ public class ManSave extends BaseCommand {
 		if ((args.length == 1) && (args[0].equalsIgnoreCase("force"))) //$NON-NLS-1$
 			forced.set(true);
 
-		CompletableFuture.runAsync(() -> {
+		GMExecutor.getInstance().runAsync(() -> {
 			try {
 				/*
 				 * Obtain a lock so we can save.
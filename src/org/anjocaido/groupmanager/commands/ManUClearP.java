@@ -87,7 +87,7 @@ public class ManUClearP extends BaseCommand {
 				
 		sender.sendMessage(ChatColor.YELLOW + String.format(Messages.getString("REMOVED_ALL_PERMISSIONS_PLAYER"), auxUser.getLastName())); //$NON-NLS-1$
 
-		plugin.getWorldsHolder().refreshData(null);
+		plugin.getWorldsHolder().scheduleRefresh(null);
 
 		return true;
 	}
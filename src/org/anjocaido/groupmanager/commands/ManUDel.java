@@ -77,7 +77,7 @@ public class ManUDel extends BaseCommand {
 		GroupManager.setLoaded(loaded);
 		sender.sendMessage(ChatColor.YELLOW + String.format(Messages.getString("USER_CHANGED_TO_DEFAULT"), auxUser.getLastName())); //$NON-NLS-1$
 
-		plugin.getWorldsHolder().refreshData(null);
+		plugin.getWorldsHolder().scheduleRefresh(null);
 
 		return true;
 	}
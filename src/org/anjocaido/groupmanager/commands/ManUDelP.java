@@ -100,7 +100,7 @@ public class ManUDelP extends BaseCommand {
 				
 		// Seems OK
 
-		plugin.getWorldsHolder().refreshData(null);
+		plugin.getWorldsHolder().scheduleRefresh(null);
 
 		return true;
 	}
@@ -26,11 +26,13 @@ import java.util.Map.Entry;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 import org.anjocaido.groupmanager.GroupManager;
 import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
+import org.anjocaido.groupmanager.utils.PermissionTrie;
 import org.anjocaido.groupmanager.utils.StringPermissionComparator;
 import org.anjocaido.groupmanager.utils.Tasks;
 
@@ -40,6 +42,12 @@ import org.anjocaido.groupmanager.utils.Tasks;
  */
 public abstract class DataUnit {
 
+	/**
+	 * Incremented whenever any permission data changes.
+	 * Used to invalidate compiled permission snapshots.
+	 */
+	private static final AtomicLong generation = new AtomicLong();
+
 	private WorldDataHolder dataSource;
 	private final String uUID;
 	private String lastName = "";
@@ -47,6 +55,18 @@ public abstract class DataUnit {
 	private long timeStamp = 0;
 
 	private final Map<String, Long> permissions = new ConcurrentSkipListMap<>(new StringPermissionComparator());
+	/**
+	 * Segmented index of the permission keys for fast lookups.
+	 */
+	private final PermissionTrie permissionIndex = new PermissionTrie();
+	/**
+	 * Incremented every time this DataUnit is altered.
+	 */
+	private final AtomicLong version = new AtomicLong();
+	/**
+	 * Cached read only copy of the permission keys.
+	 */
+	private volatile CachedList permissionList = null;
 
 	DataUnit(WorldDataHolder dataSource, String name) {
 
@@ -167,6 +187,56 @@ public abstract class DataUnit {
 		GroupManager.logger.finest(String.format("DataSource: %s - DataUnit: %s flagged as ", source, getUUID()) + "changed!");
 
 		changed = true;
+		bumpVersion();
+	}
+
+	/**
+	 * Record that this DataUnit has been altered,
+	 * invalidating anything compiled from its data.
+	 */
+	protected void bumpVersion() {
+
+		version.incrementAndGet();
+		bumpGeneration();
+	}
+
+	/**
+	 * Should changes to this DataUnit notify the server.
+	 * Units staged in a detached WorldDataHolder never do.
+	 *
+	 * @return true if GroupManager is loaded and this unit is live.
+	 */
+	protected boolean isNotifying() {
+
+		return GroupManager.isLoaded() && ((dataSource == null) || !dataSource.isDetached());
+	}
+
+	/**
+	 * @return the number of times this DataUnit has been altered.
+	 */
+	public long getVersion() {
+
+		return version.get();
+	}
+
+	/**
+	 * The current data generation.
+	 * This changes every time any User, Group or GlobalGroup is altered.
+	 * 
+	 * @return the generation counter.
+	 */
+	public static long getGeneration() {
+
+		return generation.get();
+	}
+
+	/**
+	 * Invalidate any data compiled from an earlier generation.
+	 * Call this after the data has been modified.
+	 */
+	public static void bumpGeneration() {
+
+		generation.incrementAndGet();
 	}
 
 	public boolean isChanged() {
@@ -234,13 +304,18 @@ public abstract class DataUnit {
 		 * has a longer duration.
 		 */
 		Long duration = permissions.get(permission);
-		if (!permissions.containsKey(permission) || ((duration != 0) && (duration < expires))) {
+		if (duration == null || ((duration != 0) && (duration < expires))) {
 			permissions.put(permission, expires);
+
+			// Existing keys are retained by the map, so only index new nodes.
+			if (duration == null)
+				permissionIndex.add(permission);
+
 			GroupManager.logger.finest(String.format("Added Timed: %s - expires: %o", permission, expires));
 			flagAsChanged();
 
-			if (GroupManager.isLoaded()) {
-				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(null);
+			if (isNotifying()) {
+				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(null);
 			}
 		}
 	}
@@ -259,25 +334,49 @@ public abstract class DataUnit {
 			result = permissions.remove(permission) != null;
 
 		if (result) {
+			permissionIndex.remove(permission);
 			flagAsChanged();
 
-			if (GroupManager.isLoaded()) {
-				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(null);
+			if (isNotifying()) {
+				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(null);
 			}
 		}
 
 		return result;
 	}
 
+	/**
+	 * Find the permission node on this DataUnit which decides the given permission.
+	 * This is the first node in the permission list that
+	 * comparePermissionString would report as a match.
+	 * Inheritance is not included.
+	 * 
+	 * @param permission	the permission to look for.
+	 * @return the matching node, or null if none match.
+	 */
+	public String findPermission(String permission) {
+
+		return permissionIndex.find(permission);
+	}
+
 	/**
 	 * Use this only to list permissions.
-	 * You can't edit the permissions using the returned ArrayList instance
+	 * You can't edit the permissions using the returned List instance.
 	 * 
-	 * @return a copy of the permission list
+	 * The list is built once and shared until the permissions change.
+	 * 
+	 * @return a read only copy of the permission list
 	 */
 	public List<String> getPermissionList() {
 
-		return Collections.unmodifiableList(permissions.keySet().stream().collect(Collectors.toList()));
+		long current = version.get();
+		CachedList cached = permissionList;
+
+		if (cached == null || cached.version != current) {
+			cached = new CachedList(current, Collections.unmodifiableList(permissions.keySet().stream().collect(Collectors.toList())));
+			permissionList = cached;
+		}
+		return cached.list;
 	}
 
 	/**
@@ -326,11 +425,30 @@ public abstract class DataUnit {
 			
 			if ((value != 0) && Tasks.isExpired(value)) {
 				iterator.remove();
+				permissionIndex.remove(name);
 				expired = true;
 				GroupManager.logger.log(Level.INFO, (String.format("Timed Permission removed from : %s : %s", getLastName(), name)));
 			}
 		}
 
+		if (expired)
+			bumpVersion();
+
 		return expired;
 	}
+
+	/**
+	 * A permission list and the version it was built from.
+	 */
+	private static final class CachedList {
+
+		final long version;
+		final List<String> list;
+
+		CachedList(long version, List<String> list) {
+
+			this.version = version;
+			this.list = list;
+		}
+	}
 }
\ No newline at end of file
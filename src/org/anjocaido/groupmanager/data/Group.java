@@ -17,8 +17,8 @@
  */
 package org.anjocaido.groupmanager.data;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -26,6 +26,7 @@ import java.util.Map.Entry;
 import org.anjocaido.groupmanager.GroupManager;
 import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
 import org.anjocaido.groupmanager.events.GMGroupEvent.Action;
+import org.anjocaido.groupmanager.permissions.RefreshTracker;
 
 /**
  * 
@@ -35,8 +36,12 @@ public class Group extends DataUnit implements Cloneable {
 
 	/**
 	 * The groups it inherits DIRECTLY!
+	 * 
+	 * Never modified once published. Writers replace it
+	 * with an altered copy so threads checking permissions
+	 * can read it without locking.
 	 */
-	private List<String> inherits = new LinkedList<>();
+	private volatile List<String> inherits = Collections.emptyList();
 
 	/**
 	 * This holds the fields in INFO node.
@@ -100,7 +105,7 @@ public class Group extends DataUnit implements Cloneable {
 			clone = new Group(this.getName());
 		} else {
 			clone = new Group(getDataSource(), this.getName());
-			clone.inherits = new LinkedList<>(this.getInherits());
+			clone.inherits = this.inherits;
 		}
 
 		for (Entry<String, Long> perm : this.getPermissions().entrySet()) {
@@ -131,7 +136,8 @@ public class Group extends DataUnit implements Cloneable {
 
 		// Don't add inheritance for GlobalGroups
 		if (!isGlobal()) {
-			clone.inherits = new LinkedList<>(this.getInherits());
+			clone.inherits = this.inherits;
+			clone.inheritanceChanged();
 		}
 
 		for (Entry<String, Long> perm : this.getPermissions().entrySet()) {
@@ -151,7 +157,7 @@ public class Group extends DataUnit implements Cloneable {
 	 */
 	public List<String> getInherits() {
 
-		return Collections.unmodifiableList(inherits);
+		return inherits;
 	}
 
 	/**
@@ -167,8 +173,13 @@ public class Group extends DataUnit implements Cloneable {
 			if (!this.getDataSource().groupExists(inherit.getName())) {
 				getDataSource().addGroup(inherit);
 			}
-			if (!inherits.contains(inherit.getName().toLowerCase())) {
-				inherits.add(inherit.getName().toLowerCase());
+			synchronized (this) {
+				if (!inherits.contains(inherit.getName().toLowerCase())) {
+					List<String> copy = new ArrayList<>(inherits);
+					copy.add(inherit.getName().toLowerCase());
+					inherits = Collections.unmodifiableList(copy);
+					inheritanceChanged();
+				}
 			}
 			flagAsChanged();
 			
@@ -184,7 +195,7 @@ public class Group extends DataUnit implements Cloneable {
 					}
 				};
 
-				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(notify);
+				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(notify);
 			}
 		}
 	}
@@ -197,7 +208,12 @@ public class Group extends DataUnit implements Cloneable {
 				boolean loaded = GroupManager.isLoaded();
 				GroupManager.setLoaded(false); // Disable so we can push all data without triggering a save.
 				
-				inherits.remove(inherit.toLowerCase());
+				synchronized (this) {
+					List<String> copy = new ArrayList<>(inherits);
+					copy.remove(inherit.toLowerCase());
+					inherits = Collections.unmodifiableList(copy);
+				}
+				inheritanceChanged();
 
 				flagAsChanged();
 				
@@ -213,7 +229,7 @@ public class Group extends DataUnit implements Cloneable {
 						}
 					};
 
-					GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(notify);
+					GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(notify);
 					return true;
 				}
 			}
@@ -221,6 +237,14 @@ public class Group extends DataUnit implements Cloneable {
 		return false;
 	}
 
+	/**
+	 * Drop any cached inheritance closures which pass through this group.
+	 */
+	private void inheritanceChanged() {
+
+		getDataSource().getInheritanceGraph().invalidate(getName());
+	}
+
 	/**
 	 * @return the variables
 	 */
@@ -258,8 +282,22 @@ public class Group extends DataUnit implements Cloneable {
 					}
 				};
 
-				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(notify);
+				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(notify);
 			}
 		}
 	}
+
+	/**
+	 * Every member of this Group, or a Group inheriting it,
+	 * needs their Superperms refreshing.
+	 */
+	@Override
+	protected void bumpVersion() {
+
+		super.bumpVersion();
+
+		// Loads mark everyone once they complete.
+		if (isNotifying())
+			RefreshTracker.getInstance().markGroup(getName());
+	}
 }
@@ -18,7 +18,7 @@
 package org.anjocaido.groupmanager.data;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +29,7 @@ import org.anjocaido.groupmanager.GroupManager;
 import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
 import org.anjocaido.groupmanager.events.GMUserEvent.Action;
 import org.anjocaido.groupmanager.localization.Messages;
+import org.anjocaido.groupmanager.permissions.RefreshTracker;
 import org.anjocaido.groupmanager.utils.BukkitWrapper;
 import org.anjocaido.groupmanager.utils.Tasks;
 import org.bukkit.entity.Player;
@@ -39,8 +40,15 @@ import org.bukkit.entity.Player;
  */
 public class User extends DataUnit implements Cloneable {
 
-	private String group;
-	private final Map<String, Long> subGroups = new LinkedHashMap<>();
+	private volatile String group;
+	/**
+	 * Sub-groups and their expiry times.
+	 * 
+	 * Never modified once published. Writers replace it
+	 * with an altered copy so threads checking permissions
+	 * can read it without locking.
+	 */
+	private volatile Map<String, Long> subGroups = Collections.emptyMap();
 
 	/**
 	 * This holds the fields in INFO node,
@@ -71,7 +79,7 @@ public class User extends DataUnit implements Cloneable {
 			clone.addTimedPermission(perm.getKey(), perm.getValue());
 		}
 		// Clone subgroups.
-		clone.subGroups.putAll(this.subGroups);
+		clone.subGroups = this.subGroups;
 
 		GroupManager.setLoaded(loaded);	// Restore original state.
 		return clone;
@@ -108,7 +116,7 @@ public class User extends DataUnit implements Cloneable {
 		}
 
 		// Clone subgroups.
-		clone.subGroups.putAll(this.subGroups);
+		clone.subGroups = this.subGroups;
 
 		clone.variables = this.variables.clone(this);
 		// No need to flagAsChanged as its done in createUser
@@ -135,7 +143,7 @@ public class User extends DataUnit implements Cloneable {
 		}
 
 		// Clone timed subgroups.
-		clone.subGroups.putAll(this.subGroups);
+		clone.subGroups = this.subGroups;
 
 		clone.variables = this.variables.clone(this);
 		clone.flagAsChanged();
@@ -212,7 +220,7 @@ public class User extends DataUnit implements Cloneable {
 		this.group = group.getName();
 		flagAsChanged();
 
-		if (GroupManager.isLoaded()) {
+		if (isNotifying()) {
 
 			Runnable notify = new Runnable() {
 
@@ -235,7 +243,7 @@ public class User extends DataUnit implements Cloneable {
 			};
 
 			if (!GroupManager.getBukkitPermissions().isPlayer_join() && (updatePerms)) {
-				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(notify);
+				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(notify);
 			}
 		}
 	}
@@ -269,17 +277,27 @@ public class User extends DataUnit implements Cloneable {
 			getDataSource().addGroup(subGroup);
 		}
 
-		Long duration = subGroups.get(subGroup.getName());
+		boolean added;
+
+		synchronized (this) {
+			Long duration = subGroups.get(subGroup.getName());
 
-		// User already has this subgroup?
-		if (!containsSubGroup(subGroup) || (containsSubGroup(subGroup) && (duration < expires) && (duration != 0))) {
+			// User already has this subgroup?
+			added = (duration == null) || ((duration < expires) && (duration != 0));
 
-			subGroups.put(subGroup.getName(), expires);
+			if (added) {
+				Map<String, Long> copy = new LinkedHashMap<>(subGroups);
+				copy.put(subGroup.getName(), expires);
+				subGroups = Collections.unmodifiableMap(copy);
+			}
+		}
+
+		if (added) {
 
 			GroupManager.logger.finest(String.format("Timed: %s - expires: %o", subGroup.getName(), expires));
 
 			flagAsChanged();
-			if (GroupManager.isLoaded()) {
+			if (isNotifying()) {
 
 				Runnable notify = new Runnable() {
 
@@ -291,7 +309,7 @@ public class User extends DataUnit implements Cloneable {
 				};
 
 				if (!GroupManager.getBukkitPermissions().isPlayer_join())
-					GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(notify);
+					GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(notify);
 			}
 			return true;
 		}
@@ -338,10 +356,21 @@ public class User extends DataUnit implements Cloneable {
 	 */
 	public boolean removeSubGroup(Group subGroup) {
 
-		if (subGroups.remove(subGroup.getName()) != null) {
+		boolean removed = false;
+
+		synchronized (this) {
+			if (subGroups.containsKey(subGroup.getName())) {
+				Map<String, Long> copy = new LinkedHashMap<>(subGroups);
+				copy.remove(subGroup.getName());
+				subGroups = Collections.unmodifiableMap(copy);
+				removed = true;
+			}
+		}
+
+		if (removed) {
 			flagAsChanged();
 
-			if (GroupManager.isLoaded()) {
+			if (isNotifying()) {
 
 				Runnable notify = new Runnable() {
 
@@ -353,7 +382,7 @@ public class User extends DataUnit implements Cloneable {
 				};
 
 				if (!GroupManager.getBukkitPermissions().isPlayer_join())
-					GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(notify);
+					GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(notify);
 			}
 			return true;
 		}
@@ -419,8 +448,9 @@ public class User extends DataUnit implements Cloneable {
 	 */
 	public void setVariables(Map<?, ?> nodeData) {
 
-		boolean loaded = GroupManager.isLoaded();
-		GroupManager.setLoaded(false); // Disable so we can push all data without triggering a save.
+		boolean notifying = isNotifying();
+		if (notifying)
+			GroupManager.setLoaded(false); // Disable so we can push all data without triggering a save.
 		
 		variables.clearVars();
 		for (Object key : nodeData.keySet()) {
@@ -428,9 +458,9 @@ public class User extends DataUnit implements Cloneable {
 		}
 		flagAsChanged();
 		
-		GroupManager.setLoaded(loaded);	// Restore original state.
-		
-		if (GroupManager.isLoaded()) {
+		if (notifying) {
+			GroupManager.setLoaded(true);	// Restore original state.
+
 			Runnable notify = new Runnable() {
 
 				@Override
@@ -441,7 +471,7 @@ public class User extends DataUnit implements Cloneable {
 			};
 
 			if (!GroupManager.getBukkitPermissions().isPlayer_join())
-				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(notify);
+				GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(notify);
 		}
 	}
 
@@ -479,21 +509,45 @@ public class User extends DataUnit implements Cloneable {
 	public boolean removeExpired() {
 
 		boolean expired = false;
-		
-		Iterator<String> iterator = subGroups.keySet().iterator();
-		
-		while (iterator.hasNext()) {
-			String name = iterator.next();
-			Long value = subGroups.get(name);
-			
-			if ((value != 0) && Tasks.isExpired(value)) {
-				iterator.remove();
-				
-				expired = true;
-				GroupManager.logger.log(Level.INFO, (String.format("Timed Subgroup removed from : %s : %s", getLastName(), name)));
+
+		synchronized (this) {
+			// Only copied once something has expired.
+			Map<String, Long> copy = null;
+
+			for (Entry<String, Long> entry : subGroups.entrySet()) {
+				String name = entry.getKey();
+				Long value = entry.getValue();
+
+				if ((value != 0) && Tasks.isExpired(value)) {
+					if (copy == null)
+						copy = new LinkedHashMap<>(subGroups);
+					copy.remove(name);
+
+					expired = true;
+					GroupManager.logger.log(Level.INFO, (String.format("Timed Subgroup removed from : %s : %s", getLastName(), name)));
+				}
 			}
+
+			if (expired)
+				subGroups = Collections.unmodifiableMap(copy);
 		}
 
+		if (expired)
+			bumpVersion();
+
 		return expired || super.removeExpired();
 	}
+
+	/**
+	 * This User needs their Superperms refreshing.
+	 */
+	@Override
+	protected void bumpVersion() {
+
+		super.bumpVersion();
+
+		// Loads mark everyone once they complete.
+		if (isNotifying())
+			RefreshTracker.getInstance().markUser(getUUID());
+	}
 }
@@ -107,8 +107,8 @@ public class Variables implements Cloneable {
 		variables.put(name, o);
 		owner.flagAsChanged();
 		
-		if (GroupManager.isLoaded()) {
-			GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(null);
+		if (owner.isNotifying()) {
+			GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(null);
 		}
 	}
 
@@ -229,8 +229,8 @@ public class Variables implements Cloneable {
 		}
 		owner.flagAsChanged();
 		
-		if (GroupManager.isLoaded()) {
-			GroupManager.getPlugin(GroupManager.class).getWorldsHolder().refreshData(null);
+		if (owner.isNotifying()) {
+			GroupManager.getPlugin(GroupManager.class).getWorldsHolder().scheduleRefresh(null);
 		}
 	}
 
@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentSkipListMap;
 
+import org.anjocaido.groupmanager.data.DataUnit;
 import org.anjocaido.groupmanager.data.Group;
 
 /**
@@ -43,6 +44,11 @@ public class GroupsDataHolder {
 	 */
 	private final ConcurrentSkipListMap<String, Group> groups = new ConcurrentSkipListMap<>();
 
+	/**
+	 * Cached inheritance closures for these groups.
+	 */
+	private final InheritanceGraph inheritanceGraph = new InheritanceGraph(this);
+
 	/**
 	 * Constructor
 	 */
@@ -75,6 +81,7 @@ public class GroupsDataHolder {
 	public void setDefaultGroup(Group defaultGroup) {
 
 		this.defaultGroup = defaultGroup;
+		DataUnit.bumpGeneration();
 	}
 
 	/**
@@ -86,12 +93,22 @@ public class GroupsDataHolder {
 		return groups;
 	}
 
+	/**
+	 * @return the inheritance graph for these groups.
+	 */
+	public InheritanceGraph getInheritanceGraph() {
+
+		return inheritanceGraph;
+	}
+
 	/**
 	 * Resets the Groups
 	 */
 	void resetGroups() {
 		
 		this.groups.clear();
+		inheritanceGraph.clear();
+		DataUnit.bumpGeneration();
 	}
 
 	/**
@@ -134,6 +151,9 @@ public class GroupsDataHolder {
 	public void setGroupsChanged(boolean changed) {
 
 		this.changed = changed;
+
+		if (changed)
+			DataUnit.bumpGeneration();
 	}
 
 	/**
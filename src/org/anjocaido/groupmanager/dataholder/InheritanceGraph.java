@@ -0,0 +1,333 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.dataholder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.anjocaido.groupmanager.GroupManager;
+import org.anjocaido.groupmanager.data.Group;
+
+/**
+ * The inheritance closures of all Groups in a GroupsDataHolder.
+ *
+ * Each closure is computed once on first use and cached until a Group
+ * it depends upon changes. It holds the Groups in three orders, so none
+ * of the existing behaviours change:
+ * Breadth-first, as permissions are checked,
+ * search order, the stack order variables are looked up in,
+ * and list order, the order the stack search first sees each Group,
+ * used for group listings and merging permissions.
+ *
+ * Changing the inherits of a Group only drops the closures
+ * which pass through that Group.
+ *
+ * Global Groups ('g:') are resolved through GlobalGroups. Any closure
+ * referencing one is also dropped when the Global Groups change.
+ *
+ * @author ElgarL
+ */
+public class InheritanceGraph {
+
+	/**
+	 * Incremented whenever Global Groups are added or removed.
+	 */
+	private static final AtomicLong globalEpoch = new AtomicLong();
+
+	private final GroupsDataHolder groups;
+
+	/**
+	 * Cached closures keyed by lower case Group name.
+	 */
+	private final Map<String, Closure> closures = new ConcurrentHashMap<>();
+
+	/**
+	 * Groups we have already reported an inheritance loop for.
+	 */
+	private final Set<String> reportedLoops = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Incremented on every invalidation so a closure built
+	 * from data which changed mid build is never cached.
+	 */
+	private final AtomicLong modifications = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param groups	the GroupsDataHolder this graph resolves against.
+	 */
+	InheritanceGraph(GroupsDataHolder groups) {
+
+		this.groups = groups;
+	}
+
+	/**
+	 * Fetch the inheritance closure of a Group.
+	 *
+	 * @param start	the Group to start from.
+	 * @return the cached, or freshly computed Closure.
+	 */
+	public Closure getClosure(Group start) {
+
+		String key = start.getName().toLowerCase();
+		Closure closure = closures.get(key);
+
+		if (closure != null && closure.start == start && closure.isCurrent())
+			return closure;
+
+		long version = modifications.get();
+		closure = compute(start);
+
+		// Only cache if nothing changed while we were building.
+		if (modifications.get() == version)
+			closures.put(key, closure);
+
+		return closure;
+	}
+
+	/**
+	 * Changes whenever any closure in this graph may have changed.
+	 * That is on any invalidation, or when the Global Groups change.
+	 *
+	 * @return the current version of this graph.
+	 */
+	public long getVersion() {
+
+		return modifications.get() + globalEpoch.get();
+	}
+
+	/**
+	 * Drop every closure which includes, or references, this Group.
+	 *
+	 * Called when a Groups inherits change, or it is added or removed.
+	 *
+	 * @param groupName	the name of the Group which changed.
+	 */
+	public void invalidate(String groupName) {
+
+		String name = groupName.toLowerCase();
+
+		modifications.incrementAndGet();
+		closures.values().removeIf(closure -> closure.references.contains(name));
+		reportedLoops.remove(name);
+	}
+
+	/**
+	 * Drop all cached closures.
+	 */
+	public void clear() {
+
+		modifications.incrementAndGet();
+		closures.clear();
+		reportedLoops.clear();
+	}
+
+	/**
+	 * Notify all graphs the set of Global Groups has changed.
+	 */
+	public static void globalGroupsChanged() {
+
+		globalEpoch.incrementAndGet();
+	}
+
+	/**
+	 * Resolve a Group name the same way WorldDataHolder.getGroup does.
+	 */
+	private Group resolve(String groupName) {
+
+		if (groupName.toLowerCase().startsWith("g:")) //$NON-NLS-1$
+			return GroupManager.getGlobalGroups().getGroup(groupName);
+		else
+			return groups.getGroups().get(groupName.toLowerCase());
+	}
+
+	/**
+	 * Search through the inheritance of start,
+	 * Breadth-first and then with a stack.
+	 */
+	private Closure compute(Group start) {
+
+		long epoch = globalEpoch.get();
+		ArrayDeque<Group> queue = new ArrayDeque<>();
+		List<Group> members = new ArrayList<>();
+		Set<Group> alreadyVisited = new HashSet<>();
+		Set<String> references = new HashSet<>();
+		boolean global = false;
+		boolean loop = false;
+
+		queue.add(start);
+		alreadyVisited.add(start);
+		references.add(start.getName().toLowerCase());
+
+		while (!queue.isEmpty()) {
+			Group now = queue.poll();
+			members.add(now);
+
+			for (String sonName : now.getInherits()) {
+				String name = sonName.toLowerCase();
+				references.add(name);
+
+				if (name.startsWith("g:")) //$NON-NLS-1$
+					global = true;
+
+				Group son = resolve(sonName);
+				if (son == null)
+					continue;
+
+				if (son == start)
+					loop = true;
+
+				if (alreadyVisited.add(son))
+					queue.add(son);
+			}
+		}
+
+		if (loop && reportedLoops.add(start.getName().toLowerCase()))
+			GroupManager.logger.warning("Inheritance loop detected for group: " + start.getName()); //$NON-NLS-1$
+
+		/*
+		 * The stack search. Each Groups inherits are pushed in order,
+		 * so the last inherited is searched first. Groups are
+		 * listed as they are first seen, searched as they are popped.
+		 */
+		ArrayDeque<Group> stack = new ArrayDeque<>();
+		List<Group> searched = new ArrayList<>();
+		List<Group> listed = new ArrayList<>();
+		Set<Group> seen = new HashSet<>();
+
+		stack.push(start);
+		seen.add(start);
+		listed.add(start);
+
+		while (!stack.isEmpty()) {
+			Group now = stack.pop();
+			searched.add(now);
+
+			for (String sonName : now.getInherits()) {
+				Group son = resolve(sonName);
+
+				if (son != null && seen.add(son)) {
+					stack.push(son);
+					listed.add(son);
+				}
+			}
+		}
+
+		return new Closure(start, members, searched, listed, references, global ? epoch : -1);
+	}
+
+	/**
+	 * An ordered, immutable inheritance closure.
+	 */
+	public static final class Closure {
+
+		private final Group start;
+		private final List<Group> groups;
+		private final List<Group> searched;
+		private final List<Group> listed;
+		private final List<String> names;
+		private final Set<String> lowerNames;
+		private final Set<String> references;
+		private final long epoch;
+
+		private Closure(Group start, List<Group> groups, List<Group> searched, List<Group> listed, Set<String> references, long epoch) {
+
+			this.start = start;
+			this.groups = Collections.unmodifiableList(groups);
+			this.searched = Collections.unmodifiableList(searched);
+			this.listed = Collections.unmodifiableList(listed);
+			this.references = references;
+			this.epoch = epoch;
+
+			List<String> names = new ArrayList<>(listed.size());
+			Set<String> lowerNames = new HashSet<>();
+
+			for (Group group : listed) {
+				names.add(group.getName());
+				lowerNames.add(group.getName().toLowerCase());
+			}
+			this.names = Collections.unmodifiableList(names);
+			this.lowerNames = lowerNames;
+		}
+
+		/**
+		 * @return false if this closure depends on Global Groups which have since changed.
+		 */
+		private boolean isCurrent() {
+
+			return epoch < 0 || epoch == globalEpoch.get();
+		}
+
+		/**
+		 * The order permissions are checked in.
+		 * 
+		 * @return all Groups in this closure, starting Group first, in Breadth-first order.
+		 */
+		public List<Group> getGroups() {
+
+			return groups;
+		}
+
+		/**
+		 * The order variables (prefix, suffix etc) are looked up in.
+		 * 
+		 * @return all Groups in this closure, starting Group first, in stack search order.
+		 */
+		public List<Group> getSearchOrder() {
+
+			return searched;
+		}
+
+		/**
+		 * The order Groups are listed, and their permissions merged, in.
+		 * 
+		 * @return all Groups in this closure, starting Group first, in the order the stack search first saw them.
+		 */
+		public List<Group> getListOrder() {
+
+			return listed;
+		}
+
+		/**
+		 * @return the names of all Groups in this closure, in list order.
+		 */
+		public List<String> getNames() {
+
+			return names;
+		}
+
+		/**
+		 * Is a Group part of this closure.
+		 *
+		 * @param groupName	the name of the Group (case-insensitive).
+		 * @return true if the Group is inherited (or is the starting Group).
+		 */
+		public boolean contains(String groupName) {
+
+			return lowerNames.contains(groupName.toLowerCase());
+		}
+	}
+}
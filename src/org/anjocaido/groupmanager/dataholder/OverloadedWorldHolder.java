@@ -24,7 +24,9 @@ import java.util.LinkedList;
 import java.util.Map;
 
 import org.anjocaido.groupmanager.GroupManager;
+import org.anjocaido.groupmanager.data.DataUnit;
 import org.anjocaido.groupmanager.data.User;
+import org.anjocaido.groupmanager.permissions.RefreshTracker;
 
 /**
  * 
@@ -106,11 +108,15 @@ public class OverloadedWorldHolder extends WorldDataHolder {
 		//OVERLOADED CODE
 		if (overloadedUsers.containsKey(userId.toLowerCase())) {
 			overloadedUsers.remove(userId.toLowerCase());
+			getPermissionsHandler().forgetUser(userId);
+			RefreshTracker.getInstance().markUser(userId);
 			return true;
 		}
 		//END CODE
 		if (getUsers().containsKey(userId.toLowerCase())) {
 			getUsers().remove(userId.toLowerCase());
+			getPermissionsHandler().forgetUser(userId);
+			RefreshTracker.getInstance().markUser(userId);
 			setUsersChanged(true);
 			return true;
 		}
@@ -130,6 +136,9 @@ public class OverloadedWorldHolder extends WorldDataHolder {
 		for (String key : getGroups().keySet()) {
 			if (groupName.equalsIgnoreCase(key)) {
 				getGroups().remove(key);
+				getInheritanceGraph().invalidate(key);
+				getPermissionsHandler().forgetGroup(key);
+				RefreshTracker.getInstance().markAll();
 				for (String userKey : getUsers().keySet()) {
 					User user = getUsers().get(userKey);
 					if (user.getGroupName().equalsIgnoreCase(key)) {
@@ -189,6 +198,7 @@ public class OverloadedWorldHolder extends WorldDataHolder {
 			theUser = theUser.clone();
 			overloadedUsers.remove(theUser.getUUID().toLowerCase());
 			overloadedUsers.put(theUser.getUUID().toLowerCase(), theUser);
+			DataUnit.bumpGeneration();
 		}
 	}
 
@@ -200,6 +210,7 @@ public class OverloadedWorldHolder extends WorldDataHolder {
 
 		User theUser = getUser(userId);
 		overloadedUsers.remove(theUser.getUUID().toLowerCase());
+		DataUnit.bumpGeneration();
 	}
 
 	/**
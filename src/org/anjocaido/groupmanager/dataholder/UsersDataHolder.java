@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentSkipListMap;
 
+import org.anjocaido.groupmanager.data.DataUnit;
 import org.anjocaido.groupmanager.data.User;
 
 /**
@@ -75,6 +76,7 @@ public class UsersDataHolder {
 	void resetUsers() {
 
 		this.users.clear();
+		DataUnit.bumpGeneration();
 	}
 
 	/**
@@ -118,6 +120,9 @@ public class UsersDataHolder {
 	public void setUsersChanged(boolean changed) {
 
 		this.changed = changed;
+
+		if (changed)
+			DataUnit.bumpGeneration();
 	}
 
 	/**
@@ -27,6 +27,7 @@ import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.anjocaido.groupmanager.GroupManager;
+import org.anjocaido.groupmanager.data.DataUnit;
 import org.anjocaido.groupmanager.data.Group;
 import org.anjocaido.groupmanager.data.User;
 import org.anjocaido.groupmanager.events.GMGroupEvent;
@@ -34,6 +35,7 @@ import org.anjocaido.groupmanager.events.GMSystemEvent;
 import org.anjocaido.groupmanager.events.GMUserEvent;
 import org.anjocaido.groupmanager.events.GMUserEvent.Action;
 import org.anjocaido.groupmanager.permissions.AnjoPermissionsHandler;
+import org.anjocaido.groupmanager.permissions.RefreshTracker;
 
 /**
  * One instance of this should exist per world/mirror it contains all functions
@@ -65,6 +67,10 @@ public class WorldDataHolder {
 	 *
 	 */
 	private AnjoPermissionsHandler permissionsHandler;
+	/**
+	 * True if this holder only stages Users, see {@link #detach()}.
+	 */
+	private boolean detached = false;
 
 	/**
 	 *
@@ -75,6 +81,55 @@ public class WorldDataHolder {
 		name = worldName;
 	}
 
+	/**
+	 * Create an empty holder for this world which shares its Groups.
+	 * <p>
+	 * Users built in it fire no events and are not seen
+	 * by this world until passed to {@link #swapUser(User)}.
+	 *
+	 * @return a detached WorldDataHolder.
+	 */
+	public WorldDataHolder detach() {
+
+		WorldDataHolder staging = new WorldDataHolder(name);
+		staging.groups = groups;
+		staging.detached = true;
+		return staging;
+	}
+
+	/**
+	 * @return true if this holder was created by {@link #detach()}.
+	 */
+	public boolean isDetached() {
+
+		return detached;
+	}
+
+	/**
+	 * Replace a User with one built in a detached holder.
+	 * <p>
+	 * No events are fired and the users changed flag is left alone,
+	 * the caller is responsible for any Bukkit update.
+	 *
+	 * @param theUser	the User to place in this world.
+	 */
+	public void swapUser(User theUser) {
+
+		String id = theUser.getUUID().toLowerCase();
+		User old = getUsers().get(id);
+
+		if (old != null)
+			removeUUIDLookup(old.getLastName().toLowerCase(), old.getUUID());
+
+		theUser.setDataSource(this);
+		getUsers().put(id, theUser);
+		putUUIDLookup(theUser.getLastName(), theUser.getUUID());
+
+		getPermissionsHandler().forgetUser(id);
+		RefreshTracker.getInstance().markUser(id);
+		DataUnit.bumpGeneration();
+	}
+
 	/**
 	 * update the dataSource to point to this object.
 	 * <p>
@@ -199,7 +254,7 @@ public class WorldDataHolder {
 
 		setUsersChanged(true);
 
-		if (GroupManager.isLoaded())
+		if (GroupManager.isLoaded() && !detached)
 			GroupManager.getGMEventHandler().callEvent(theUser, Action.USER_ADDED);
 	}
 
@@ -219,10 +274,12 @@ public class WorldDataHolder {
 			removeUUIDLookup(user.getLastName().toLowerCase(), user.getUUID());
 
 			getUsers().remove(userId.toLowerCase());
+			getPermissionsHandler().forgetUser(userId);
+			RefreshTracker.getInstance().markUser(userId);
 
 			setUsersChanged(true);
 
-			if (GroupManager.isLoaded())
+			if (GroupManager.isLoaded() && !detached)
 				GroupManager.getGMEventHandler().callEvent(userId, GMUserEvent.Action.USER_REMOVED);
 
 			return true;
@@ -313,6 +370,8 @@ public class WorldDataHolder {
 
 		removeGroup(groupToAdd.getName());
 		getGroups().put(groupToAdd.getName().toLowerCase(), groupToAdd);
+		getInheritanceGraph().invalidate(groupToAdd.getName());
+		RefreshTracker.getInstance().markAll();
 		setGroupsChanged(true);
 
 		if (GroupManager.isLoaded())
@@ -337,6 +396,9 @@ public class WorldDataHolder {
 		}
 		if (getGroups().containsKey(groupName.toLowerCase())) {
 			getGroups().remove(groupName.toLowerCase());
+			getInheritanceGraph().invalidate(groupName);
+			getPermissionsHandler().forgetGroup(groupName);
+			RefreshTracker.getInstance().markAll();
 			setGroupsChanged(true);
 
 			if (GroupManager.isLoaded())
@@ -567,6 +629,8 @@ public class WorldDataHolder {
 	public void resetGroups() {
 
 		groups.resetGroups();
+		getPermissionsHandler().forgetAll();
+		RefreshTracker.getInstance().markAll();
 	}
 
 	/**
@@ -576,6 +640,8 @@ public class WorldDataHolder {
 
 		users.resetUsers();
 		this.clearUUIDLookup();
+		getPermissionsHandler().forgetAll();
+		RefreshTracker.getInstance().markAll();
 	}
 
 	/**
@@ -596,6 +662,14 @@ public class WorldDataHolder {
 		return users.getUsers();
 	}
 
+	/**
+	 * @return the inheritance graph for this worlds groups.
+	 */
+	public InheritanceGraph getInheritanceGraph() {
+
+		return groups.getInheritanceGraph();
+	}
+
 	/**
 	 * @return the groups
 	 */
@@ -26,7 +26,12 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,9 +40,11 @@ import org.anjocaido.groupmanager.dataholder.OverloadedWorldHolder;
 import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
 import org.anjocaido.groupmanager.localization.Messages;
 import org.anjocaido.groupmanager.permissions.AnjoPermissionsHandler;
+import org.anjocaido.groupmanager.permissions.RefreshTracker;
 import org.anjocaido.groupmanager.storage.DataSource;
 import org.anjocaido.groupmanager.storage.DataSource.ACCESS_LEVEL;
 import org.anjocaido.groupmanager.storage.statements.Statements;
+import org.anjocaido.groupmanager.utils.GMExecutor;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
@@ -58,6 +65,15 @@ public abstract class WorldsHolder extends ChildMirrors {
 	protected final Logger logger;
 	private DataSource dataSource;
 
+	/**
+	 * Ticks to gather data changes before they
+	 * are saved and pushed in a single refresh.
+	 */
+	private static final long REFRESH_DELAY = 10;
+	private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+	private final LongAdder refreshesMerged = new LongAdder();
+
 	/**
 	 * Throw any exceptions as we want to prevent
 	 * the plugin loading if the database fails.
@@ -225,7 +241,28 @@ public abstract class WorldsHolder extends ChildMirrors {
 		//GroupManager.logger.info("Refresh: " + Tasks.printStackTrace());
 
 		// Check for any updated permissions
-		return CompletableFuture.supplyAsync(() -> {
+		return refresh(() -> saveChanges(false), task);
+	}
+
+	/**
+	 * Write out only the data altered since the last save.
+	 * Newer data is left for the regular refreshData to load.
+	 */
+	private CompletableFuture<Void> flushData(Runnable task) {
+
+		return refresh(this::saveDirty, task);
+	}
+
+	/**
+	 * Run a save off the main thread, then push
+	 * any changes to players and run the task.
+	 *
+	 * @param save	returns true if anything was saved or loaded.
+	 * @param task	run on the main thread once saved, or null.
+	 */
+	private CompletableFuture<Void> refresh(BooleanSupplier save, Runnable task) {
+
+		return GMExecutor.getInstance().supplyAsync(() -> {
 
 			boolean changed = false;
 			try {
@@ -235,7 +272,7 @@ public abstract class WorldsHolder extends ChildMirrors {
 				plugin.getSaveLock().lock();
 				GroupManager.setLoaded(false);
 
-				changed = saveChanges(false);
+				changed = save.getAsBoolean();
 
 			} catch (IllegalStateException ex) {
 				GroupManager.logger.log(Level.SEVERE, ("Failed to save changes: " + ex.getMessage()));
@@ -252,11 +289,14 @@ public abstract class WorldsHolder extends ChildMirrors {
 			return changed;
 		}).thenAccept((changed) -> {
 
-			if ((changed) || (task != null)) {
+			// Changes saved elsewhere (manual saves) still need pushing to players.
+			boolean refresh = changed || !RefreshTracker.getInstance().isEmpty();
+
+			if ((refresh) || (task != null)) {
 				Bukkit.getScheduler().callSyncMethod(plugin, () -> {
 					
-					if (changed)
-						GroupManager.getBukkitPermissions().updateAllPlayers();
+					if (refresh)
+						GroupManager.getBukkitPermissions().updateChangedPlayers();
 					if (task != null)
 						task.run();
 					
@@ -266,6 +306,94 @@ public abstract class WorldsHolder extends ChildMirrors {
 		});
 	}
 
+	/**
+	 * Save and push data changes a short while after the first,
+	 * so a burst of changes causes a single refresh.
+	 * Only changed data is written, anything newer is
+	 * left for the regular refreshData to load.
+	 * 
+	 * Safe to call from any thread. While disabled the task runs at once.
+	 * 
+	 * @param task	run on the main thread once saved, or null.
+	 */
+	public void scheduleRefresh(Runnable task) {
+
+		if (task != null)
+			pendingTasks.add(task);
+
+		if (!refreshScheduled.compareAndSet(false, true)) {
+			refreshesMerged.increment();
+			return;
+		}
+
+		// We can't schedule while disabled (shutting down), everything is saved anyway.
+		if (!plugin.isEnabled()) {
+			runPendingTasks();
+			return;
+		}
+
+		Bukkit.getScheduler().runTaskLater(plugin, () -> {
+
+			refreshScheduled.set(false);
+
+			List<Runnable> tasks = new ArrayList<>();
+			Runnable next;
+			while ((next = pendingTasks.poll()) != null)
+				tasks.add(next);
+
+			flushData(tasks.isEmpty() ? null : () -> tasks.forEach(Runnable::run));
+		}, REFRESH_DELAY);
+	}
+
+	/**
+	 * Run every task still waiting on a scheduled refresh, now and on this thread.
+	 * Call this when disabling, as the scheduler drops anything still queued.
+	 */
+	public void runPendingTasks() {
+
+		refreshScheduled.set(false);
+
+		Runnable next;
+		while ((next = pendingTasks.poll()) != null) {
+			try {
+				next.run();
+			} catch (Exception ex) {
+				GroupManager.logger.log(Level.WARNING, "Failed to run a pending refresh task: " + ex.getMessage()); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * @return the number of changes saved along with an earlier one.
+	 */
+	public long getMergedRefreshes() {
+
+		return refreshesMerged.sum();
+	}
+
+	/**
+	 * Bring one User up to date in every world with its own Users data,
+	 * without saving or reloading anything else.
+	 * 
+	 * Safe to call from many threads at once. Nothing is locked
+	 * unless the dataSource holds newer data for this User.
+	 * 
+	 * @param uUID	the UUID of the User.
+	 */
+	public void refreshUser(String uUID) {
+
+		boolean loaded = false;
+
+		for (OverloadedWorldHolder dataHolder : allWorldsDataList()) {
+			if (!hasUsersMirror(dataHolder.getName()))
+				loaded |= dataSource.refreshUser(dataHolder, uUID);
+		}
+
+		// The swapped User may already be online in another world.
+		if (loaded && !RefreshTracker.getInstance().isEmpty())
+			Bukkit.getScheduler().runTask(plugin, () -> GroupManager.getBukkitPermissions().updateChangedPlayers());
+	}
+
 	/**
 	 * Wrapper to retain backwards compatibility
 	 * (call this function to auto overwrite files)
@@ -277,10 +405,37 @@ public abstract class WorldsHolder extends ChildMirrors {
 	}
 
 	/**
-	 *
+	 * Save all changed data, loading anything newer
+	 * where we have no changes of our own.
+	 * 
+	 * @param overwrite	true to save over newer data.
+	 * @return true if anything was saved or loaded.
 	 */
 	public boolean saveChanges(boolean overwrite) {
 
+		return save(overwrite, true);
+	}
+
+	/**
+	 * Save only what has changed since the last save, without
+	 * checking unchanged data for anything newer to load.
+	 * 
+	 * @return true if anything was saved.
+	 */
+	private boolean saveDirty() {
+
+		return save(false, false);
+	}
+
+	/**
+	 * Save the Global Groups and each world.
+	 * 
+	 * @param overwrite	true to save over newer data.
+	 * @param reload	true to load newer data for anything we have not changed.
+	 * @return true if anything was saved or loaded.
+	 */
+	private boolean save(boolean overwrite, boolean reload) {
+
 		boolean changed = false;
 		ArrayList<WorldDataHolder> alreadyDone = new ArrayList<>();
 
@@ -292,16 +447,7 @@ public abstract class WorldsHolder extends ChildMirrors {
 		/*
 		 * Save Global Groups
 		 */
-		if (GroupManager.getGlobalGroups().haveGroupsChanged() && canWrite) {
-			dataSource.backup(null, DataSource.BACKUP_TYPE.GLOBALGROUPS);
-			plugin.getWorldsHolder().getDataSource().saveGlobalGroups(overwrite);
-
-		} else {
-			if (overwrite || (!overwrite && dataSource.hasNewGlobalGroupsData())) {
-				GroupManager.logger.log(Level.WARNING, Messages.getString("GlobalGroups.WARN_NEWER_GG_FOUND_LOADING")); //$NON-NLS-1$
-				GroupManager.getGlobalGroups().load();
-			}
-		}
+		changed |= saveGlobalGroups(overwrite, canWrite, reload);
 
 		/*
 		 * Save each world.
@@ -316,60 +462,101 @@ public abstract class WorldsHolder extends ChildMirrors {
 					continue;
 				}
 
-				if (!hasGroupsMirror(dataHolder.getName())) {
-					if (dataHolder.haveGroupsChanged() && canWrite) {
-						if (overwrite || (!overwrite && !dataSource.hasNewGroupsData(dataHolder))) {
-							// Backup Groups file
-							dataSource.backup(dataHolder, DataSource.BACKUP_TYPE.GROUPS);
-							dataSource.saveGroups(dataHolder);
-							changed = true;	//TODO should be false?
-
-						} else {
-							// Newer file found.
-							GroupManager.logger.log(Level.WARNING, String.format(Messages.getString("WorldsHolder.WARN_NEWER_GROUPS_FILE_UNABLE"), dataHolder.getName())); //$NON-NLS-1$
-							throw new IllegalStateException(Messages.getString("ERROR_UNABLE_TO_SAVE")); //$NON-NLS-1$
-						}
-					} else {
-						//Check for newer file as no local changes or we are set to READ only and need new data.
-						if (dataSource.hasNewGroupsData(dataHolder) || dataHolder.haveGroupsChanged()) {
+				changed |= saveGroups(dataHolder, overwrite, canWrite, reload);
+				changed |= saveUsers(dataHolder, overwrite, canWrite, reload);
 
-							GroupManager.logger.log(Level.INFO, Messages.getString("WorldsHolder.NEWER_GROUPS_FILE_LOADING")); //$NON-NLS-1$
+				alreadyDone.add(dataHolder);
+			}
+		}
 
-							dataSource.reloadGroups(dataHolder);
-							changed = true;
-						}
-					}
-				}
+		return changed;
+	}
 
-				if (!hasUsersMirror(dataHolder.getName())) {
-					if (dataHolder.haveUsersChanged() && canWrite) {
-						if (overwrite || (!overwrite && !dataSource.hasNewUsersData(dataHolder))) {
-							// Backup Users file
-							dataSource.backup(dataHolder, DataSource.BACKUP_TYPE.USERS);
-							dataSource.saveUsers(dataHolder);
-							changed = true;	//TODO should be false?
-
-						} else {
-							// Newer file found.
-							GroupManager.logger.log(Level.WARNING, String.format(Messages.getString("WorldsHolder.WARN_NEWER_USERS_FILE_UNABLE"), dataHolder.getName())); //$NON-NLS-1$
-							throw new IllegalStateException(Messages.getString("ERROR_UNABLE_TO_SAVE")); //$NON-NLS-1$
-						}
-					} else {
-						// Check for newer file as no local changes or we are set to READ only and need new data.
-						if (dataSource.hasNewUsersData(dataHolder) || dataHolder.haveUsersChanged()) {
+	/**
+	 * Save the Global Groups if changed, else load any newer data.
+	 */
+	private boolean saveGlobalGroups(boolean overwrite, boolean canWrite, boolean reload) {
 
-							GroupManager.logger.log(Level.INFO, Messages.getString("WorldsHolder.NEWER_USERS_FILE_LOADING")); //$NON-NLS-1$
+		if (GroupManager.getGlobalGroups().haveGroupsChanged() && canWrite) {
+			dataSource.backup(null, DataSource.BACKUP_TYPE.GLOBALGROUPS);
+			dataSource.saveGlobalGroups(overwrite);
+			return true;
+		}
 
-							dataSource.reloadUsers(dataHolder);
-							changed = true;
-						}
-					}
-				}
-				alreadyDone.add(dataHolder);
+		if (reload && (overwrite || dataSource.hasNewGlobalGroupsData())) {
+			GroupManager.logger.log(Level.WARNING, Messages.getString("GlobalGroups.WARN_NEWER_GG_FOUND_LOADING")); //$NON-NLS-1$
+			GroupManager.getGlobalGroups().load();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Save a worlds Groups if changed, else load any newer data.
+	 * 
+	 * @throws IllegalStateException if we have changes but newer data exists.
+	 */
+	private boolean saveGroups(OverloadedWorldHolder dataHolder, boolean overwrite, boolean canWrite, boolean reload) {
+
+		if (hasGroupsMirror(dataHolder.getName()))
+			return false;
+
+		if (dataHolder.haveGroupsChanged() && canWrite) {
+			if (!overwrite && dataSource.hasNewGroupsData(dataHolder)) {
+				// Newer file found.
+				GroupManager.logger.log(Level.WARNING, String.format(Messages.getString("WorldsHolder.WARN_NEWER_GROUPS_FILE_UNABLE"), dataHolder.getName())); //$NON-NLS-1$
+				throw new IllegalStateException(Messages.getString("ERROR_UNABLE_TO_SAVE")); //$NON-NLS-1$
 			}
+			// Backup Groups file
+			dataSource.backup(dataHolder, DataSource.BACKUP_TYPE.GROUPS);
+			dataSource.saveGroups(dataHolder);
+			return true;
 		}
 
-		return changed;
+		//Check for newer file as no local changes or we are set to READ only and need new data.
+		if (reload && (dataSource.hasNewGroupsData(dataHolder) || dataHolder.haveGroupsChanged())) {
+
+			GroupManager.logger.log(Level.INFO, Messages.getString("WorldsHolder.NEWER_GROUPS_FILE_LOADING")); //$NON-NLS-1$
+
+			dataSource.reloadGroups(dataHolder);
+			RefreshTracker.getInstance().markAll();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Save a worlds Users if changed, else load any newer data.
+	 * 
+	 * @throws IllegalStateException if we have changes but newer data exists.
+	 */
+	private boolean saveUsers(OverloadedWorldHolder dataHolder, boolean overwrite, boolean canWrite, boolean reload) {
+
+		if (hasUsersMirror(dataHolder.getName()))
+			return false;
+
+		if (dataHolder.haveUsersChanged() && canWrite) {
+			if (!overwrite && dataSource.hasNewUsersData(dataHolder)) {
+				// Newer file found.
+				GroupManager.logger.log(Level.WARNING, String.format(Messages.getString("WorldsHolder.WARN_NEWER_USERS_FILE_UNABLE"), dataHolder.getName())); //$NON-NLS-1$
+				throw new IllegalStateException(Messages.getString("ERROR_UNABLE_TO_SAVE")); //$NON-NLS-1$
+			}
+			// Backup Users file
+			dataSource.backup(dataHolder, DataSource.BACKUP_TYPE.USERS);
+			dataSource.saveUsers(dataHolder);
+			return true;
+		}
+
+		// Check for newer file as no local changes or we are set to READ only and need new data.
+		if (reload && (dataSource.hasNewUsersData(dataHolder) || dataHolder.haveUsersChanged())) {
+
+			GroupManager.logger.log(Level.INFO, Messages.getString("WorldsHolder.NEWER_USERS_FILE_LOADING")); //$NON-NLS-1$
+
+			dataSource.reloadUsers(dataHolder);
+			RefreshTracker.getInstance().markAll();
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -18,15 +18,23 @@
 package org.anjocaido.groupmanager.permissions;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
+import org.anjocaido.groupmanager.GMConfiguration;
 import org.anjocaido.groupmanager.GroupManager;
+import org.anjocaido.groupmanager.data.DataUnit;
 import org.anjocaido.groupmanager.data.Group;
 import org.anjocaido.groupmanager.data.User;
 import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
@@ -48,6 +56,50 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 
 	private WorldDataHolder ph;
 
+	/**
+	 * Compiled permissions for each online Player, kept until they quit or are removed.
+	 */
+	private final Map<String, PermissionSnapshot> snapshots = new ConcurrentHashMap<>();
+	/**
+	 * The same snapshots indexed by online Player UUID,
+	 * so Player checks need no String conversion.
+	 */
+	private final Map<UUID, PermissionSnapshot> playerSnapshots = new ConcurrentHashMap<>();
+	/**
+	 * Compiled permissions for the Users most recently checked
+	 * without a Player, built without a miss cache.
+	 */
+	private static final int OFFLINE_SNAPSHOTS = 64;
+	private final Map<String, PermissionSnapshot> offlineSnapshots = Collections.synchronizedMap(new LinkedHashMap<String, PermissionSnapshot>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PermissionSnapshot> eldest) {
+
+			return size() > OFFLINE_SNAPSHOTS;
+		}
+	});
+	/**
+	 * Totals for the per Player miss caches held by the snapshots.
+	 */
+	private final MissCache.Counters missCounters = new MissCache.Counters();
+
+	/**
+	 * Expanded (populated) permissions for each Group, keyed by lower case name.
+	 * Held separately with and without Bukkit child nodes.
+	 */
+	private final Map<String, ExpandedPerms> expandedPerms = new ConcurrentHashMap<>();
+	private final Map<String, ExpandedPerms> expandedPermsWithChildren = new ConcurrentHashMap<>();
+	/**
+	 * Merged permissions for recently merged Users, keyed by lower case UUID.
+	 * Each holds one per online Player plus a few for anyone else,
+	 * dropping the least recently used.
+	 */
+	private static final int OFFLINE_MERGED = 64;
+	private final Map<String, MergedPerms> mergedPerms = newMergedCache();
+	private final Map<String, MergedPerms> mergedPermsWithChildren = newMergedCache();
+
 	/**
 	 * It needs a WorldDataHolder to work with.
 	 * 
@@ -83,8 +135,181 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 	@Override
 	public boolean permission(Player player, String permission) {
 
-		PermissionCheckResult result = checkFullUserPermission(ph.getUser(player.getUniqueId().toString()), permission);
-		return result.resultType == PermissionCheckResult.Type.EXCEPTION || result.resultType == PermissionCheckResult.Type.FOUND;
+		return PermissionCheckResult.isAllowed(checkPermissionCode(player, permission));
+	}
+
+	/**
+	 * Check a number of permission nodes for one Player.
+	 * The players permissions are resolved once and each node is a single lookup.
+	 * Includes Bukkit assigned permissions.
+	 * 
+	 * @param player
+	 * @param nodes
+	 * @return BitSet with bit n set if the player has nodes.get(n)
+	 */
+	@Override
+	public BitSet permissions(Player player, List<String> nodes) {
+
+		BitSet result = new BitSet(nodes.size());
+
+		if (player == null || nodes.isEmpty())
+			return result;
+
+		PermissionSnapshot snapshot = getPlayerSnapshot(player);
+
+		// Offline server and the 'groupmanager.noofflineperms' node.
+		if (!Bukkit.getServer().getOnlineMode() && snapshot.hasNoOfflinePerms())
+			return result;
+
+		int index = 0;
+		for (String node : nodes) {
+			if (isAllowed(snapshot, player, node))
+				result.set(index);
+			index++;
+		}
+		return result;
+	}
+
+	/**
+	 * Check a number of permission nodes for one Player.
+	 * The players permissions are resolved once and each node is a single lookup.
+	 * Includes Bukkit assigned permissions.
+	 * 
+	 * @param player
+	 * @param nodes
+	 * @return Map of each node to true if the player has it, in the order given.
+	 */
+	@Override
+	public Map<String, Boolean> permissionMap(Player player, Collection<String> nodes) {
+
+		Map<String, Boolean> result = new LinkedHashMap<>();
+
+		if (player == null || nodes.isEmpty())
+			return result;
+
+		PermissionSnapshot snapshot = getPlayerSnapshot(player);
+		boolean denyAll = !Bukkit.getServer().getOnlineMode() && snapshot.hasNoOfflinePerms();
+
+		for (String node : nodes)
+			result.put(node, !denyAll && isAllowed(snapshot, player, node));
+
+		return result;
+	}
+
+	/**
+	 * Check a number of permission nodes for one User.
+	 * The users permissions are resolved once and each node is a single lookup.
+	 * 
+	 * @param user
+	 * @param nodes
+	 * @param checkBukkit	true to include Bukkit assigned permissions if the user is online.
+	 * @return BitSet with bit n set if the user has nodes.get(n)
+	 */
+	public BitSet permissions(User user, List<String> nodes, boolean checkBukkit) {
+
+		BitSet result = new BitSet(nodes.size());
+
+		if (user == null || nodes.isEmpty())
+			return result;
+
+		PermissionSnapshot snapshot = getSnapshot(user);
+
+		// Offline server and the 'groupmanager.noofflineperms' node.
+		if (!Bukkit.getServer().getOnlineMode() && snapshot.hasNoOfflinePerms())
+			return result;
+
+		Player player = checkBukkit ? user.getBukkitPlayer() : null;
+
+		int index = 0;
+		for (String node : nodes) {
+			if (isAllowed(snapshot, player, node))
+				result.set(index);
+			index++;
+		}
+		return result;
+	}
+
+	/**
+	 * A single node check against an already resolved snapshot.
+	 * 
+	 * @param snapshot
+	 * @param player	the online Player for a Bukkit fallback, or null.
+	 * @param node
+	 * @return true if the node is held.
+	 */
+	private static boolean isAllowed(PermissionSnapshot snapshot, Player player, String node) {
+
+		if (node == null || node.isEmpty())
+			return false;
+
+		int result = snapshot.checkPermissionCode(node);
+
+		// Check Bukkit perms to support plugins which add perms via code.
+		if (result == PermissionCheckResult.RESULT_NOTFOUND && player != null && player.hasPermission(node))
+			result = PermissionCheckResult.RESULT_FOUND;
+
+		return PermissionCheckResult.isAllowed(result);
+	}
+
+	/**
+	 * Allocation free version of checkFullUserPermission for an online Player.
+	 * Includes Bukkit assigned permissions.
+	 * 
+	 * Once the Players snapshot is built nothing is allocated, except
+	 * the first time a missing node is remembered in the miss cache.
+	 * 
+	 * @param player
+	 * @param targetPermission
+	 * @return a PermissionCheckResult result code.
+	 */
+	public int checkPermissionCode(Player player, String targetPermission) {
+
+		if (player == null || targetPermission == null || targetPermission.isEmpty())
+			return PermissionCheckResult.RESULT_NOTFOUND;
+
+		PermissionSnapshot snapshot = getPlayerSnapshot(player);
+
+		// Offline server and the 'groupmanager.noofflineperms' node.
+		if (!Bukkit.getServer().getOnlineMode() && snapshot.hasNoOfflinePerms())
+			return PermissionCheckResult.RESULT_NOTFOUND;
+
+		int result = snapshot.checkPermissionCode(targetPermission);
+
+		// Check Bukkit perms to support plugins which add perms via code.
+		if (result == PermissionCheckResult.RESULT_NOTFOUND && player.hasPermission(targetPermission))
+			result = PermissionCheckResult.RESULT_FOUND;
+
+		return result;
+	}
+
+	/**
+	 * Allocation free version of checkFullGMPermission.
+	 * 
+	 * @param user
+	 * @param targetPermission
+	 * @param checkBukkit
+	 * @return a PermissionCheckResult result code.
+	 */
+	public int checkPermissionCode(User user, String targetPermission, boolean checkBukkit) {
+
+		if (user == null || targetPermission == null || targetPermission.isEmpty())
+			return PermissionCheckResult.RESULT_NOTFOUND;
+
+		PermissionSnapshot snapshot = getSnapshot(user);
+
+		// Offline server and the 'groupmanager.noofflineperms' node.
+		if (!Bukkit.getServer().getOnlineMode() && snapshot.hasNoOfflinePerms())
+			return PermissionCheckResult.RESULT_NOTFOUND;
+
+		int result = snapshot.checkPermissionCode(targetPermission);
+
+		if (checkBukkit && result == PermissionCheckResult.RESULT_NOTFOUND) {
+			final Player player = user.getBukkitPlayer();
+
+			if ((player != null) && player.hasPermission(targetPermission))
+				result = PermissionCheckResult.RESULT_FOUND;
+		}
+		return result;
 	}
 
 	/**
@@ -136,46 +361,121 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 	@Override
 	public Set<String> getAllPlayersPermissions(String userName, Boolean includeChildren) {
 
-		Set<String> overrides = new LinkedHashSet<>();
+		return new LinkedHashSet<>(getMergedPermissions(userName, includeChildren).perms);
+	}
 
-		// Add the players own permissions.
-		Set<String> playerPermArray = new LinkedHashSet<>(populatePerms(ph.getUser(userName).getPermissionList(), includeChildren));
+	/**
+	 * Fetch the cached merge of a players permissions,
+	 * merging again if anything it depends upon has changed.
+	 * 
+	 * @param userName
+	 * @param includeChildren
+	 * @return the current MergedPerms.
+	 */
+	MergedPerms getMergedPermissions(String userName, boolean includeChildren) {
 
-		ArrayList<String> alreadyProcessed = new ArrayList<>();
+		User user = ph.getUser(userName);
+		List<Group> groups = listAllGroups(user);
+		long registry = getRegistryVersion();
 
-		// fetch all group permissions
-		for (String group : getGroups(userName)) {
-			// Don't process a group more than once.
-			if (!alreadyProcessed.contains(group)) {
-				alreadyProcessed.add(group);
+		/*
+		 * Reuse the last merge unless the User, the Bukkit registry,
+		 * or any Group this User inherits has changed since.
+		 */
+		Map<String, MergedPerms> cache = includeChildren ? mergedPermsWithChildren : mergedPerms;
+		String key = user.getUUID().toLowerCase();
+		MergedPerms merged = cache.get(key);
+
+		if (merged == null || !merged.isValid(user, registry, groups)) {
+			// Read versions before building so a change mid build is noticed next time.
+			merged = new MergedPerms(user, registry, groups);
+			merged.perms = Collections.unmodifiableSet(mergePerms(user, groups, includeChildren, registry));
+			cache.put(key, merged);
+		}
+		return merged;
+	}
 
-				Set<String> groupPermArray;
+	/**
+	 * A least recently used map of merges, sized to the online Players.
+	 */
+	private Map<String, MergedPerms> newMergedCache() {
 
-				if (group.startsWith("g:") && GroupManager.getGlobalGroups().hasGroup(group)) {
-					// GlobalGroups
-					groupPermArray = populatePerms(GroupManager.getGlobalGroups().getGroupsPermissions(group), includeChildren);
+		return Collections.synchronizedMap(new LinkedHashMap<String, MergedPerms>(16, 0.75f, true) {
 
-				} else {
-					// World Groups
-					groupPermArray = populatePerms(ph.getGroup(group).getPermissionList(), includeChildren);
-				}
+			private static final long serialVersionUID = 1L;
 
-				// Add all group permissions, unless negated by earlier permissions.
-				for (String perm : groupPermArray) {
-					boolean negated = (perm.startsWith("-"));
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, MergedPerms> eldest) {
 
-					// Overridden (Exception) permission defeats negation.
-					if (perm.startsWith("+")) {
-						overrides.add(perm.substring(1));
-						continue;
-					}
+				return size() > snapshots.size() + OFFLINE_MERGED;
+			}
+		});
+	}
 
-					// Perm doesn't already exists and there is no negation for it
-					// or It's a negated perm where a normal perm doesn't exists (don't allow inheritance to negate higher perms)
-					if ((!negated && !playerPermArray.contains(perm) && !wildcardNegation(playerPermArray, perm)) || (negated && !playerPermArray.contains(perm.substring(1)) && !wildcardNegation(playerPermArray, perm.substring(1))))
-						playerPermArray.add(perm);
+	/**
+	 * Are this Users merged permissions (without child nodes) cached and
+	 * current, so getAllPlayersPermissions can return them without a merge.
+	 * 
+	 * @param user
+	 * @return true if cached.
+	 */
+	public boolean isPermissionsCached(User user) {
+
+		MergedPerms merged = mergedPerms.get(user.getUUID().toLowerCase());
+
+		return merged != null && merged.isValid(user, getRegistryVersion(), listAllGroups(user));
+	}
+
+	/**
+	 * Record the state this Users merged permissions are built from.
+	 * Take it before computing, so a change meanwhile is noticed.
+	 * 
+	 * @param user
+	 * @return a stamp to test with {@link #isStampCurrent(MergedPerms)}.
+	 */
+	MergedPerms stampPermissions(User user) {
+
+		return new MergedPerms(user, getRegistryVersion(), listAllGroups(user));
+	}
+
+	/**
+	 * @param stamp	from {@link #stampPermissions(User)}.
+	 * @return true if the User, its Groups and the Bukkit registry are unchanged since the stamp.
+	 */
+	boolean isStampCurrent(MergedPerms stamp) {
+
+		return stamp.isValid(stamp.user, getRegistryVersion(), listAllGroups(stamp.user));
+	}
+
+	/**
+	 * Merge the players own permissions with those of all their groups.
+	 */
+	private Set<String> mergePerms(User user, List<Group> groups, boolean includeChildren, long registry) {
 
+		Set<String> overrides = new LinkedHashSet<>();
+
+		// Add the players own permissions.
+		Set<String> playerPermArray = new LinkedHashSet<>(populatePerms(user.getPermissionList(), includeChildren));
+
+		// fetch all group permissions
+		for (Group group : groups) {
+			Set<String> groupPermArray = getExpandedPerms(group, includeChildren, registry);
+
+			// Add all group permissions, unless negated by earlier permissions.
+			for (String perm : groupPermArray) {
+				boolean negated = (perm.startsWith("-"));
+
+				// Overridden (Exception) permission defeats negation.
+				if (perm.startsWith("+")) {
+					overrides.add(perm.substring(1));
+					continue;
 				}
+
+				// Perm doesn't already exists and there is no negation for it
+				// or It's a negated perm where a normal perm doesn't exists (don't allow inheritance to negate higher perms)
+				if ((!negated && !playerPermArray.contains(perm) && !wildcardNegation(playerPermArray, perm)) || (negated && !playerPermArray.contains(perm.substring(1)) && !wildcardNegation(playerPermArray, perm.substring(1))))
+					playerPermArray.add(perm);
+
 			}
 
 		}
@@ -195,6 +495,57 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 		return playerPermArray;
 	}
 
+	/**
+	 * All Groups for this User, primary then sub-groups,
+	 * each followed by its inheritance. Each Group appears once.
+	 */
+	private List<Group> listAllGroups(User user) {
+
+		List<Group> groups = new ArrayList<>();
+		Set<Group> alreadyProcessed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		if (user.getGroup() != null)
+			for (Group group : ph.getInheritanceGraph().getClosure(user.getGroup()).getListOrder())
+				if (alreadyProcessed.add(group))
+					groups.add(group);
+
+		for (Group subGroup : user.subGroupListCopy())
+			for (Group group : ph.getInheritanceGraph().getClosure(subGroup).getListOrder())
+				if (alreadyProcessed.add(group))
+					groups.add(group);
+
+		return groups;
+	}
+
+	/**
+	 * Fetch the populated permissions for a Group,
+	 * only expanding them again if the Group or Bukkit registry has changed.
+	 * 
+	 * @return an unmodifiable Set.
+	 */
+	private Set<String> getExpandedPerms(Group group, boolean includeChildren, long registry) {
+
+		Map<String, ExpandedPerms> cache = includeChildren ? expandedPermsWithChildren : expandedPerms;
+		String key = group.getName().toLowerCase();
+		ExpandedPerms expanded = cache.get(key);
+		long version = group.getVersion();
+
+		if (expanded == null || expanded.group != group || expanded.version != version || expanded.registry != registry) {
+			expanded = new ExpandedPerms(group, version, registry, Collections.unmodifiableSet(populatePerms(group.getPermissionList(), includeChildren)));
+			cache.put(key, expanded);
+		}
+		return expanded.perms;
+	}
+
+	/**
+	 * @return the version of the Bukkit permission registry.
+	 */
+	private long getRegistryVersion() {
+
+		BukkitPermissions bukkitPermissions = GroupManager.getBukkitPermissions();
+		return (bukkitPermissions == null) ? 0 : bukkitPermissions.getRegistryVersion();
+	}
+
 	/**
 	 * Is there a direct or wildcard negation in the list which covers this permission node.
 	 * 
@@ -270,24 +621,26 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 				 */
 				if ((includeChildren) || (negated && allPerms)) {
 
-					Map<String, Boolean> children = GroupManager.getBukkitPermissions().getAllChildren((negated ? perm.substring(1) : perm), new LinkedHashSet<>());
+					ChildPermissionGraph.Closure children = GroupManager.getBukkitPermissions().getChildClosure(negated ? perm.substring(1) : perm);
 
-					if (children != null) {
+					if (!children.isEmpty()) {
 						if (negated)
 							if (allPerms) {
 
 								// Remove children of negated nodes
-								for (String child : children.keySet())
-									if (children.get(child))
-										permArray.remove(child);
+								for (int i = 0; i < children.size(); i++)
+									if (children.getValue(i))
+										permArray.remove(children.getName(i));
 
 							} else {
 
 								// Add child nodes
-								for (String child : children.keySet())
-									if (children.get(child))
+								for (int i = 0; i < children.size(); i++)
+									if (children.getValue(i)) {
+										String child = children.getName(i);
 										if ((!permArray.contains(child)) && (!permArray.contains("-" + child)))
 											permArray.add(child);
+									}
 							}
 					}
 				}
@@ -746,13 +1099,13 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 		PermissionCheckResult result = new PermissionCheckResult();
 		result.askedPermission = permission;
 		result.owner = user;
-		for (String access : user.getPermissionList()) {
+
+		String access = user.findPermission(permission);
+		if (access != null) {
 			result.resultType = comparePermissionString(access, permission);
-			if (result.resultType != PermissionCheckResult.Type.NOTFOUND) {
-				GroupManager.logger.fine("Found an " + result.resultType + " for " + permission + " on player " + result.owner.getLastName());
-				result.accessLevel = access;
-				return result;
-			}
+			GroupManager.logger.fine("Found an " + result.resultType + " for " + permission + " on player " + result.owner.getLastName());
+			result.accessLevel = access;
+			return result;
 		}
 		result.resultType = PermissionCheckResult.Type.NOTFOUND;
 		return result;
@@ -771,13 +1124,13 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 		PermissionCheckResult result = new PermissionCheckResult();
 		result.owner = group;
 		result.askedPermission = permission;
-		for (String access : group.getPermissionList()) {
+
+		String access = group.findPermission(permission);
+		if (access != null) {
 			result.resultType = comparePermissionString(access, permission);
-			if (result.resultType != PermissionCheckResult.Type.NOTFOUND) {
-				GroupManager.logger.fine("Found an " + result.resultType + " for " + permission + " on group " + group.getName());
-				result.accessLevel = access;
-				return result;
-			}
+			GroupManager.logger.fine("Found an " + result.resultType + " for " + permission + " on group " + group.getName());
+			result.accessLevel = access;
+			return result;
 		}
 		result.resultType = PermissionCheckResult.Type.NOTFOUND;
 		return result;
@@ -830,8 +1183,7 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 		 * and the player has the 'groupmanager.noofflineperms' permission.
 		 */
 		if (user == null || targetPermission == null || targetPermission.isEmpty()
-				|| (!Bukkit.getServer().getOnlineMode()
-						&& (checkPermission(user, "groupmanager.noofflineperms", false).resultType == PermissionCheckResult.Type.FOUND))) {
+				|| (!Bukkit.getServer().getOnlineMode() && getSnapshot(user).hasNoOfflinePerms())) {
 
 			PermissionCheckResult result = new PermissionCheckResult();
 			result.accessLevel = targetPermission;
@@ -855,84 +1207,158 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 	 */
 	private PermissionCheckResult checkPermission(User user, String targetPermission, Boolean checkBukkit) {
 
-		PermissionCheckResult result = new PermissionCheckResult();
-		result.accessLevel = targetPermission;
-		result.resultType = PermissionCheckResult.Type.NOTFOUND;
-		
-		PermissionCheckResult resultUser = checkUserOnlyPermission(user, targetPermission);
-		if (resultUser.resultType != PermissionCheckResult.Type.NOTFOUND) {
+		PermissionCheckResult result = getSnapshot(user).checkPermission(targetPermission);
 
-			resultUser.accessLevel = targetPermission;
+		// If set to check Bukkit and we found no permission in GroupManager
+		if (checkBukkit && result.resultType == PermissionCheckResult.Type.NOTFOUND) {
+			// Check Bukkit perms to support plugins which add perms via code
+			// (Heroes).
+			final Player player = user.getBukkitPlayer();
 
-			if (resultUser.resultType == PermissionCheckResult.Type.EXCEPTION) {
-				return resultUser;
+			if ((player != null) && player.hasPermission(targetPermission)) {
+				result.resultType = PermissionCheckResult.Type.FOUND;
+				result.owner = user;
 			}
+		}
 
-			result = resultUser;
+		return result;
+	}
 
-		}
+	/**
+	 * Fetch the compiled permissions for this User,
+	 * rebuilding them if any data has changed since they were built.
+	 * 
+	 * Users already checked as a Player use their Players snapshot.
+	 * Anyone else only has a few recent snapshots kept,
+	 * so offline lookups can't fill memory.
+	 * 
+	 * @param user
+	 * @return a current PermissionSnapshot.
+	 */
+	PermissionSnapshot getSnapshot(User user) {
 
-		// IT ONLY CHECKS GROUPS PERMISSIONS IF RESULT FOR USER IS NOT AN EXCEPTION
-		PermissionCheckResult resultGroup = checkGroupPermissionWithInheritance(user.getGroup(), targetPermission);
-		if (resultGroup.resultType != PermissionCheckResult.Type.NOTFOUND) {
+		long generation = DataUnit.getGeneration();
 
-			resultGroup.accessLevel = targetPermission;
+		String key = user.getUUID().toLowerCase();
 
-			if (resultGroup.resultType == PermissionCheckResult.Type.EXCEPTION) {
-				return resultGroup;
-			}
+		if (snapshots.containsKey(key))
+			return getOnlineSnapshot(user, generation);
 
-			// Do not override higher level permissions with negations.
-			if (result.resultType == PermissionCheckResult.Type.NOTFOUND) {
-				result = resultGroup;
-			}
+		PermissionSnapshot snapshot = offlineSnapshots.get(key);
 
+		if (snapshot == null || !snapshot.isValid(user, generation)) {
+			snapshot = new PermissionSnapshot(ph, user, generation, null);
+			offlineSnapshots.put(key, snapshot);
 		}
+		return snapshot;
+	}
 
-		// Do we have a high level negation?
-		boolean negated = (result.resultType == PermissionCheckResult.Type.NEGATION);
+	/**
+	 * Fetch the compiled permissions, with a miss cache, for an online Player's User.
+	 */
+	private PermissionSnapshot getOnlineSnapshot(User user, long generation) {
 
-		// SUBGROUPS CHECK
-		for (Group subGroup : user.subGroupListCopy()) {
+		String key = user.getUUID().toLowerCase();
+		PermissionSnapshot snapshot = snapshots.get(key);
 
-			PermissionCheckResult resultSubGroup = checkGroupPermissionWithInheritance(subGroup, targetPermission);
-			if (resultSubGroup.resultType != PermissionCheckResult.Type.NOTFOUND) {
+		if (snapshot == null || !snapshot.isValid(user, generation)) {
+			int missCacheSize = (GroupManager.getGMConfig() == null) ? GMConfiguration.DEFAULT_MISS_CACHE_SIZE : GroupManager.getGMConfig().getMissCacheSize();
+			snapshot = new PermissionSnapshot(ph, user, generation, (missCacheSize > 0) ? new MissCache(missCacheSize, missCounters) : null);
+			snapshots.put(key, snapshot);
+			offlineSnapshots.remove(key);
+		}
+		return snapshot;
+	}
 
-				resultSubGroup.accessLevel = targetPermission;
+	/**
+	 * @return the number of checks answered by a miss cache.
+	 */
+	public long getMissCacheHits() {
 
-				// Allow exceptions to override higher level negations
-				// but low level negations can not remove higher level permissions.
-				if (resultSubGroup.resultType == PermissionCheckResult.Type.EXCEPTION) {
+		return missCounters.hits.sum();
+	}
 
-					return resultSubGroup;
+	/**
+	 * @return the number of checks not found in a miss cache.
+	 */
+	public long getMissCacheMisses() {
 
-				} else if ((resultSubGroup.resultType == PermissionCheckResult.Type.FOUND) && (result.resultType != PermissionCheckResult.Type.NEGATION) && !negated) {
+		return missCounters.misses.sum();
+	}
 
-					result = resultSubGroup;
+	/**
+	 * @return the number of nodes dropped from full miss caches.
+	 */
+	public long getMissCacheEvictions() {
 
-				} else if ((resultSubGroup.resultType == PermissionCheckResult.Type.NEGATION) && !negated) {
+		return missCounters.evictions.sum();
+	}
 
-					result = resultSubGroup;
-				}
+	/**
+	 * Fetch the compiled permissions for an online Player.
+	 * 
+	 * @param player
+	 * @return a current PermissionSnapshot.
+	 */
+	PermissionSnapshot getPlayerSnapshot(Player player) {
 
-			}
-		}
-		
-		// If set to check Bukkit and we found no permission in GroupManager
-		if (checkBukkit && result.resultType == PermissionCheckResult.Type.NOTFOUND) {
-			// Check Bukkit perms to support plugins which add perms via code
-			// (Heroes).
-			final Player player = user.getBukkitPlayer();
+		long generation = DataUnit.getGeneration();
 
-			if ((player != null) && player.hasPermission(targetPermission)) {
-				result.resultType = PermissionCheckResult.Type.FOUND;
-				result.owner = user;
-			}
+		UUID uuid = player.getUniqueId();
+		PermissionSnapshot snapshot = playerSnapshots.get(uuid);
+
+		// If the generation moved, re-check it against the current User.
+		if (snapshot == null || !snapshot.isValid(generation)) {
+			snapshot = getOnlineSnapshot(ph.getUser(uuid.toString()), generation);
+			playerSnapshots.put(uuid, snapshot);
 		}
+		return snapshot;
+	}
 
-		// THEN IT RETURNS A NOT FOUND
-		// OR THE RESULT OF THE SUBGROUP SEARCH.
-		return result;
+	/**
+	 * Drop everything cached for a User.
+	 * Called when they quit, or are removed from this world.
+	 * 
+	 * @param userId the UUID or name of the User.
+	 */
+	public void forgetUser(String userId) {
+
+		String key = userId.toLowerCase();
+
+		snapshots.remove(key);
+		offlineSnapshots.remove(key);
+		mergedPerms.remove(key);
+		mergedPermsWithChildren.remove(key);
+		playerSnapshots.keySet().removeIf(uuid -> uuid.toString().equals(key));
+	}
+
+	/**
+	 * Drop the expanded permissions cached for a Group
+	 * which has been removed from this world.
+	 * 
+	 * @param groupName the name of the Group.
+	 */
+	public void forgetGroup(String groupName) {
+
+		String key = groupName.toLowerCase();
+
+		expandedPerms.remove(key);
+		expandedPermsWithChildren.remove(key);
+	}
+
+	/**
+	 * Drop everything cached for this world,
+	 * when its Users or Groups are reset.
+	 */
+	public void forgetAll() {
+
+		snapshots.clear();
+		offlineSnapshots.clear();
+		playerSnapshots.clear();
+		mergedPerms.clear();
+		mergedPermsWithChildren.clear();
+		expandedPerms.clear();
+		expandedPermsWithChildren.clear();
 	}
 
 	/**
@@ -950,22 +1376,10 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 		if (start == null || targetVariable == null) {
 			return null;
 		}
-		LinkedList<Group> stack = new LinkedList<>();
-		ArrayList<Group> alreadyVisited = new ArrayList<>();
-		stack.push(start);
-		alreadyVisited.add(start);
-		while (!stack.isEmpty()) {
-			Group now = stack.pop();
+		for (Group now : ph.getInheritanceGraph().getClosure(start).getSearchOrder()) {
 			if (now.getVariables().hasVar(targetVariable)) {
 				return now;
 			}
-			for (String sonName : now.getInherits()) {
-				Group son = ph.getGroup(sonName);
-				if (son != null && !alreadyVisited.contains(son)) {
-					stack.push(son);
-					alreadyVisited.add(son);
-				}
-			}
 		}
 		return null;
 	}
@@ -985,24 +1399,7 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 		if (start == null || askedGroup == null) {
 			return false;
 		}
-		LinkedList<Group> stack = new LinkedList<>();
-		ArrayList<Group> alreadyVisited = new ArrayList<>();
-		stack.push(start);
-		alreadyVisited.add(start);
-		while (!stack.isEmpty()) {
-			Group now = stack.pop();
-			if (now.getName().equalsIgnoreCase(askedGroup)) {
-				return true;
-			}
-			for (String sonName : now.getInherits()) {
-				Group son = ph.getGroup(sonName);
-				if (son != null && !alreadyVisited.contains(son)) {
-					stack.push(son);
-					alreadyVisited.add(son);
-				}
-			}
-		}
-		return false;
+		return ph.getInheritanceGraph().getClosure(start).contains(askedGroup);
 	}
 
 	/**
@@ -1025,19 +1422,13 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 			return null;
 		}
 
-		LinkedList<Group> stack = new LinkedList<>();
-		List<Group> alreadyVisited = new ArrayList<>();
 		PermissionCheckResult result = new PermissionCheckResult();
 
-		stack.push(start);
-		alreadyVisited.add(start);
-
 		// Set defaults.
 		result.askedPermission = targetPermission;
 		result.resultType = PermissionCheckResult.Type.NOTFOUND;
 
-		while (!stack.isEmpty()) {
-			Group now = stack.pop();
+		for (Group now : ph.getInheritanceGraph().getClosure(start).getGroups()) {
 			PermissionCheckResult resultNow = checkGroupOnlyPermission(now, targetPermission);
 
 			if (!resultNow.resultType.equals(PermissionCheckResult.Type.NOTFOUND)) {
@@ -1059,15 +1450,6 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 					result = resultNow;
 				}
 			}
-
-			for (String sonName : now.getInherits()) {
-				Group son = ph.getGroup(sonName);
-				if (son != null && !alreadyVisited.contains(son)) {
-					// Add rather than push to retain inheritance order.
-					stack.add(son);
-					alreadyVisited.add(son);
-				}
-			}
 		}
 
 		return result;
@@ -1087,21 +1469,7 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 		if (start == null) {
 			return null;
 		}
-		LinkedList<Group> stack = new LinkedList<>();
-		ArrayList<String> alreadyVisited = new ArrayList<>();
-		stack.push(start);
-		alreadyVisited.add(start.getName());
-		while (!stack.isEmpty()) {
-			Group now = stack.pop();
-			for (String sonName : now.getInherits()) {
-				Group son = ph.getGroup(sonName);
-				if (son != null && !alreadyVisited.contains(son.getName())) {
-					stack.push(son);
-					alreadyVisited.add(son.getName());
-				}
-			}
-		}
-		return alreadyVisited;
+		return new ArrayList<>(ph.getInheritanceGraph().getClosure(start).getNames());
 	}
 
 	/**
@@ -1217,12 +1585,7 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 		if (start == null || targerPermission == null) {
 			return null;
 		}
-		LinkedList<Group> stack = new LinkedList<>();
-		ArrayList<Group> alreadyVisited = new ArrayList<>();
-		stack.push(start);
-		alreadyVisited.add(start);
-		while (!stack.isEmpty()) {
-			Group now = stack.pop();
+		for (Group now : ph.getInheritanceGraph().getClosure(start).getSearchOrder()) {
 			PermissionCheckResult resultNow = checkGroupOnlyPermission(now, targerPermission);
 			if (resultNow.resultType.equals(PermissionCheckResult.Type.EXCEPTION) || resultNow.resultType.equals(PermissionCheckResult.Type.FOUND)) {
 				return now;
@@ -1230,13 +1593,6 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 			if (resultNow.resultType.equals(PermissionCheckResult.Type.NEGATION)) {
 				return null;
 			}
-			for (String sonName : now.getInherits()) {
-				Group son = ph.getGroup(sonName);
-				if (son != null && !alreadyVisited.contains(son)) {
-					stack.push(son);
-					alreadyVisited.add(son);
-				}
-			}
 		}
 		return null;
 	}
@@ -1343,4 +1699,65 @@ public class AnjoPermissionsHandler extends PermissionsReaderInterface {
 
 		ph.getGroup(name).getVariables().removeVar(path);
 	}
+
+	/**
+	 * The populated permissions of a single Group.
+	 */
+	private static final class ExpandedPerms {
+
+		final Group group;
+		final long version;
+		final long registry;
+		final Set<String> perms;
+
+		ExpandedPerms(Group group, long version, long registry, Set<String> perms) {
+
+			this.group = group;
+			this.version = version;
+			this.registry = registry;
+			this.perms = perms;
+		}
+	}
+
+	/**
+	 * The merged permissions of a User and the Group versions they were built from.
+	 */
+	static final class MergedPerms {
+
+		final User user;
+		final long version;
+		final long registry;
+		final Group[] groups;
+		final long[] versions;
+		Set<String> perms;
+		/**
+		 * perms sorted for Superperms by BukkitPermissions on first push.
+		 * Shared by every push of this merge, so never modified.
+		 */
+		volatile LinkedHashMap<String, Boolean> superperms;
+
+		MergedPerms(User user, long registry, List<Group> groups) {
+
+			this.user = user;
+			this.version = user.getVersion();
+			this.registry = registry;
+			this.groups = groups.toArray(new Group[0]);
+			this.versions = new long[this.groups.length];
+
+			for (int i = 0; i < this.groups.length; i++)
+				versions[i] = this.groups[i].getVersion();
+		}
+
+		boolean isValid(User user, long registry, List<Group> groups) {
+
+			if (this.user != user || this.version != user.getVersion() || this.registry != registry || this.groups.length != groups.size())
+				return false;
+
+			for (int i = 0; i < this.groups.length; i++)
+				if (this.groups[i] != groups.get(i) || versions[i] != this.groups[i].getVersion())
+					return false;
+
+			return true;
+		}
+	}
 }
@@ -19,23 +19,35 @@ package org.anjocaido.groupmanager.permissions;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
+import org.anjocaido.groupmanager.GMConfiguration;
 import org.anjocaido.groupmanager.GroupManager;
 import org.anjocaido.groupmanager.data.User;
+import org.anjocaido.groupmanager.dataholder.OverloadedWorldHolder;
 import org.anjocaido.groupmanager.events.GMUserEvent;
+import org.anjocaido.groupmanager.utils.GMExecutor;
 import org.anjocaido.groupmanager.utils.OfflinePlayerCache;
 import org.anjocaido.groupmanager.utils.Supported;
 import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.SimpleCommandMap;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -52,6 +64,7 @@ import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionAttachment;
 import org.bukkit.permissions.PermissionAttachmentInfo;
 import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitTask;
 
 /**
  * BukkitPermissions overrides to force GM responses to Superperms
@@ -61,9 +74,98 @@ import org.bukkit.plugin.PluginManager;
 public class BukkitPermissions {
 
 	private LinkedHashMap<String, PermissionAttachment> attachments = new LinkedHashMap<>();
-	private LinkedHashMap<String, Permission> registeredPermissions = new LinkedHashMap<>();
+	/**
+	 * Replaced, never modified, on each collection
+	 * so it can be read while permissions are computed off the main thread.
+	 */
+	private volatile LinkedHashMap<String, Permission> registeredPermissions = new LinkedHashMap<>();
 	private GroupManager plugin;
 	private boolean player_join = false;
+	/**
+	 * Incremented every time the registered permissions are collected.
+	 */
+	private volatile long registryVersion = 0;
+	/**
+	 * Interned and de-duplicated copies of all registered permissions,
+	 * with and without child nodes. Built on first use after each collection.
+	 */
+	private volatile List<String> allPermissions = null;
+	private volatile List<String> allPermissionsWithChildren = null;
+	/**
+	 * Every descendant of each registered permission.
+	 * Built on first use after each collection.
+	 */
+	private volatile ChildPermissionGraph childGraph = null;
+	/**
+	 * Attachment updates which changed something,
+	 * and those skipped as nothing had changed.
+	 */
+	private final LongAdder pushesApplied = new LongAdder();
+	private final LongAdder pushesSkipped = new LongAdder();
+	/**
+	 * Players waiting for a refresh, processed on the main thread
+	 * a few each tick.
+	 */
+	private final Set<UUID> pendingRefresh = new LinkedHashSet<>();
+	private boolean refreshScheduled = false;
+	/**
+	 * Ticks without a plugin being enabled or disabled
+	 * before the registered permissions are collected again.
+	 */
+	private static final long COLLECT_DELAY = 10;
+	private BukkitTask pendingCollection = null;
+	private final LongAdder collectionsMerged = new LongAdder();
+	/**
+	 * Ticks to gather players quitting
+	 * before their changes are saved together.
+	 */
+	private static final long QUIT_DELAY = 20;
+	private final Map<String, String> pendingQuits = new HashMap<>();
+	private BukkitTask pendingQuitSave = null;
+	private final LongAdder quitsMerged = new LongAdder();
+	/**
+	 * Permissions computed during async pre-login, waiting for the join.
+	 * Only used if their User and Groups are unchanged since, and the player
+	 * joins the world they were computed for.
+	 */
+	private static final long WARM_UP_EXPIRY = TimeUnit.SECONDS.toMillis(30);
+	private final Map<String, WarmUp> warmUps = new ConcurrentHashMap<>();
+	private final LongAdder warmUpsUsed = new LongAdder();
+	private final LongAdder warmUpsDiscarded = new LongAdder();
+	/**
+	 * Players waiting to be sent their command list, so
+	 * a burst of changes to one player sends it once.
+	 */
+	private final Map<UUID, BukkitTask> pendingCommandUpdates = new HashMap<>();
+	private final LongAdder commandUpdatesMerged = new LongAdder();
+	private final LongAdder commandUpdatesSkipped = new LongAdder();
+	/**
+	 * The permission nodes guarding each registered command.
+	 * Built on first use after each collection.
+	 */
+	private static final Set<String> COMMANDS_UNKNOWN = Collections.unmodifiableSet(new HashSet<>());
+	private volatile Set<String> commandPermissions = null;
+	/**
+	 * The world recent players quit in, where they most likely rejoin.
+	 */
+	private static final int LAST_WORLDS = 1000;
+	private final Map<String, String> lastWorlds = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+
+			return size() > LAST_WORLDS;
+		}
+	});
+	/**
+	 * The most recent update requested for each player (by UUID).
+	 * Any result computed for an earlier request is dropped.
+	 */
+	private final AtomicLong updateSequence = new AtomicLong();
+	private final Map<String, Long> latestUpdate = new ConcurrentHashMap<>();
+	private final LongAdder staleUpdates = new LongAdder();
 
 	/**
 	 * @return the player_join
@@ -122,12 +224,121 @@ public class BukkitPermissions {
 
 	public void collectPermissions() {
 
-		registeredPermissions.clear();
+		LinkedHashMap<String, Permission> registered = new LinkedHashMap<>();
 
 		for (Permission perm : Bukkit.getPluginManager().getPermissions()) {
-			registeredPermissions.put(perm.getName().toLowerCase(), perm);
+			registered.put(perm.getName().toLowerCase(), perm);
+		}
+		registeredPermissions = registered;
+		registryVersion++;
+
+		allPermissions = null;
+		allPermissionsWithChildren = null;
+		childGraph = null;
+		commandPermissions = null;
+
+	}
+
+	/**
+	 * Collect the registered permissions once plugins stop
+	 * being enabled or disabled, then refresh any players affected.
+	 * 
+	 * Each call restarts the wait, so a burst of plugin
+	 * events (startup or a reload) causes a single collection.
+	 */
+	public void scheduleCollectPermissions() {
+
+		// We can't schedule while disabled (shutting down).
+		if (!plugin.isEnabled()) {
+			collectPermissions();
+			return;
+		}
+
+		if (pendingCollection != null) {
+			pendingCollection.cancel();
+			collectionsMerged.increment();
+		}
+
+		pendingCollection = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+
+			pendingCollection = null;
+			collectPermissions();
+			RefreshTracker.getInstance().markAll();
+
+			if (GroupManager.isLoaded())
+				updateChangedPlayers();
+		}, COLLECT_DELAY);
+	}
+
+	/**
+	 * @return the number of plugin enable/disable events merged into a later collection.
+	 */
+	public long getMergedCollections() {
+
+		return collectionsMerged.sum();
+	}
+
+	/**
+	 * Save the changes of a player who quit.
+	 * 
+	 * The save happens a short while after the first quit
+	 * and covers every player who quits meanwhile, so a burst
+	 * of quits (a restart notice) joins a single refresh.
+	 * 
+	 * @param uuid		the UUID of the player.
+	 * @param worldName	the world they quit in.
+	 */
+	private void scheduleQuitSave(String uuid, String worldName) {
+
+		// Shutting down, so everything is saved anyway.
+		if (!plugin.isEnabled())
+			return;
+
+		pendingQuits.put(uuid, worldName);
+
+		if (pendingQuitSave != null) {
+			quitsMerged.increment();
+			return;
 		}
 
+		pendingQuitSave = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+
+			pendingQuitSave = null;
+			boolean changed = false;
+
+			for (Map.Entry<String, String> quit : pendingQuits.entrySet()) {
+				User user = plugin.getWorldsHolder().getWorldData(quit.getValue()).getUsers().get(quit.getKey().toLowerCase());
+
+				if (user != null && user.isChanged()) {
+					changed = true;
+					break;
+				}
+			}
+			pendingQuits.clear();
+
+			// Anyone unchanged is left for the regular save.
+			if (changed)
+				plugin.getWorldsHolder().scheduleRefresh(null);
+		}, QUIT_DELAY);
+	}
+
+	/**
+	 * @return the number of quits saved along with an earlier one.
+	 */
+	public long getMergedQuits() {
+
+		return quitsMerged.sum();
+	}
+
+	/**
+	 * Any permissions expanded using the registered
+	 * permissions are stale once this changes.
+	 * 
+	 * @return the version of the registered permissions.
+	 */
+	public long getRegistryVersion() {
+
+		return registryVersion;
 	}
 
 	public void updatePermissions(Player player) {
@@ -153,23 +364,158 @@ public class BukkitPermissions {
 		// Reset the User objects player reference.
 		User user = plugin.getWorldsHolder().getWorldData(player.getWorld().getName()).getUser(uuid, player.getName());
 
-		PermissionAttachment attachment;
+		if (world == null) {
+			world = player.getWorld().getName();
+		}
 
-		// Find the players current attachment, or add a new one.
-		if (this.attachments.containsKey(uuid)) {
-			attachment = this.attachments.get(uuid);
-		} else {
-			attachment = player.addAttachment(plugin);
-			this.attachments.put(uuid, attachment);
+		long sequence = nextUpdate(uuid);
+		applyPermissions(player, user, computePermissions(uuid, world), sequence);
+	}
+
+	/**
+	 * Compute the permissions for this player, on this world, off the
+	 * main thread. They are pushed to Bukkit on the main thread, next tick.
+	 * 
+	 * If another update for the player is requested before then,
+	 * this result is dropped so it can never replace newer permissions.
+	 *
+	 * @param player
+	 * @param world		null for the players current world.
+	 */
+	public void updatePermissionsAsync(Player player, String world) {
+
+		if (player == null || !GroupManager.isLoaded()) {
+			return;
 		}
 
-		if (world == null) {
-			world = player.getWorld().getName();
+		String uuid = player.getUniqueId().toString();
+
+		// Reset the User objects player reference (creating it if needed) before we leave the main thread.
+		User user = plugin.getWorldsHolder().getWorldData(player.getWorld().getName()).getUser(uuid, player.getName());
+
+		String target = (world == null) ? player.getWorld().getName() : world;
+		long sequence = nextUpdate(uuid);
+
+		GMExecutor.getInstance().supplyAsync(() -> computePermissions(uuid, target)).whenComplete((newPerms, ex) -> {
+
+			if (ex != null) {
+				GroupManager.logger.log(Level.SEVERE, "Failed to compute permissions for: " + player.getName(), ex);
+				return;
+			}
+			if (plugin.isEnabled())
+				Bukkit.getScheduler().runTask(plugin, () -> applyPermissions(player, user, newPerms, sequence));
+		});
+	}
+
+	/**
+	 * Compute a joining players permissions ahead of the join, in the
+	 * world they last quit in (or the default world).
+	 * Called off the main thread, during async pre-login.
+	 * 
+	 * Players GM doesn't know yet are left for the join,
+	 * as Users can only be created on the main thread.
+	 *
+	 * @param uuid
+	 */
+	private void warmUp(String uuid) {
+
+		long now = System.currentTimeMillis();
+
+		// Drop any left by players who never joined.
+		warmUps.values().removeIf(warmUp -> warmUp.expires < now);
+
+		String world = lastWorlds.get(uuid);
+		OverloadedWorldHolder holder = (world == null) ? plugin.getWorldsHolder().getDefaultWorld() : plugin.getWorldsHolder().getWorldData(world);
+
+		if (!holder.isUserDeclared(uuid))
+			return;
+
+		// Stamp before computing so a change meanwhile is noticed.
+		User user = holder.getUser(uuid);
+		AnjoPermissionsHandler.MergedPerms stamp = holder.getPermissionsHandler().stampPermissions(user);
+
+		warmUps.put(uuid, new WarmUp(holder, stamp, now + WARM_UP_EXPIRY, computePermissions(uuid, holder.getName())));
+	}
+
+	/**
+	 * Claim the permissions computed for this player during pre-login.
+	 *
+	 * @param player
+	 * @return the permissions, or null if none or no longer valid.
+	 */
+	private LinkedHashMap<String, Boolean> takeWarmUp(Player player) {
+
+		WarmUp warmUp = warmUps.remove(player.getUniqueId().toString());
+
+		if (warmUp == null || !GroupManager.isLoaded())
+			return null;
+
+		if (!warmUp.isValid(plugin.getWorldsHolder().getWorldData(player.getWorld().getName()), player.getUniqueId().toString(), System.currentTimeMillis())) {
+			warmUpsDiscarded.increment();
+			return null;
 		}
+		warmUpsUsed.increment();
+		return warmUp.perms;
+	}
+
+	/**
+	 * @return the number of joins which used permissions computed during pre-login.
+	 */
+	public long getWarmUpsUsed() {
+
+		return warmUpsUsed.sum();
+	}
+
+	/**
+	 * @return the number of pre-login permissions discarded as out of date.
+	 */
+	public long getWarmUpsDiscarded() {
+
+		return warmUpsDiscarded.sum();
+	}
+
+	/**
+	 * Start a new update for this player, superseding any in progress.
+	 *
+	 * @param uuid
+	 * @return the sequence number of this update.
+	 */
+	private long nextUpdate(String uuid) {
+
+		long sequence = updateSequence.incrementAndGet();
+		latestUpdate.put(uuid, sequence);
+		return sequence;
+	}
+
+	/**
+	 * @return the number of computed updates dropped as a newer update was requested.
+	 */
+	public long getStaleUpdates() {
+
+		return staleUpdates.sum();
+	}
+
+	/**
+	 * Fetch and sort the permissions to push for this player.
+	 * Safe to call off the main thread.
+	 * 
+	 * The sorted result is kept with the players merged permissions,
+	 * so until those change it is returned without sorting again.
+	 *
+	 * @param uuid
+	 * @param world
+	 * @return node to value, parents before children. Shared, so must not be modified.
+	 */
+	private LinkedHashMap<String, Boolean> computePermissions(String uuid, String world) {
 
 		// Add all permissions for this player (GM only)
 		// child nodes will be calculated by Bukkit.
-		List<String> playerPermArray = new ArrayList<>(plugin.getWorldsHolder().getWorldData(world).getPermissionsHandler().getAllPlayersPermissions(uuid, false));
+		AnjoPermissionsHandler.MergedPerms merged = plugin.getWorldsHolder().getWorldData(world).getPermissionsHandler().getMergedPermissions(uuid, false);
+
+		if (merged.superperms != null)
+			return merged.superperms;
+
+		List<String> playerPermArray = new ArrayList<>(merged.perms);
 		LinkedHashMap<String, Boolean> newPerms = new LinkedHashMap<>();
 
 		// Sort the perm list by parent/child, so it will push to superperms
@@ -181,6 +527,39 @@ public class BukkitPermissions {
 			value = (!permission.startsWith("-"));
 			newPerms.put((value ? permission : permission.substring(1)), value);
 		}
+		merged.superperms = newPerms;
+		return newPerms;
+	}
+
+	/**
+	 * Push computed permissions to the players attachment, unless
+	 * a newer update has been requested since they were computed.
+	 *
+	 * @param player
+	 * @param user		the User to report in the GMUserEvent.
+	 * @param newPerms	from computePermissions.
+	 * @param sequence	from nextUpdate.
+	 */
+	private void applyPermissions(Player player, User user, LinkedHashMap<String, Boolean> newPerms, long sequence) {
+
+		String uuid = player.getUniqueId().toString();
+
+		Long latest = latestUpdate.get(uuid);
+		if (latest == null || latest != sequence) {
+			staleUpdates.increment();
+			GroupManager.logger.log(Level.FINEST, "Dropped a stale update for: " + player.getName());
+			return;
+		}
+
+		PermissionAttachment attachment;
+
+		// Find the players current attachment, or add a new one.
+		if (this.attachments.containsKey(uuid)) {
+			attachment = this.attachments.get(uuid);
+		} else {
+			attachment = player.addAttachment(plugin);
+			this.attachments.put(uuid, attachment);
+		}
 
 		/*
 		 * Do not push any perms to bukkit if...
@@ -203,21 +582,26 @@ public class BukkitPermissions {
 
 				@SuppressWarnings("unchecked")
 				Map<String, Boolean> orig = (Map<String, Boolean>) permissions.get(attachment);
-				// Clear the map (faster than removing the attachment and
-				// recalculating)
-				orig.clear();
-				// Then whack our map into there
-				orig.putAll(newPerms);
+
+				// Only touch the map if something changed since our last push.
+				Set<String> changedNodes = new HashSet<>();
+				if (!applyDelta(orig, newPerms, changedNodes)) {
+					pushesSkipped.increment();
+					GroupManager.logger.log(Level.FINEST, "Attachment unchanged for: " + player.getName());
+					return;
+				}
+				pushesApplied.increment();
+
 				// That's all folks!
 				attachment.getPermissible().recalculatePermissions();
 
 				// Tab complete and command visibility
 				// Method only available post 1.14
 				if (Supported.hasUpdateCommand()) {
-					if (Bukkit.isPrimaryThread()) {
-						player.updateCommands();
+					if (affectsCommands(changedNodes)) {
+						scheduleCommandUpdate(player);
 					} else {
-						Bukkit.getScheduler().runTask(plugin, player::updateCommands);
+						commandUpdatesSkipped.increment();
 					}
 				}
 			}
@@ -232,15 +616,226 @@ public class BukkitPermissions {
 			GroupManager.getGMEventHandler().callEvent(user, GMUserEvent.Action.USER_PERMISSIONS_CHANGED);
 	}
 
+	/**
+	 * Bring an attachments permissions in line with newPerms,
+	 * touching only the nodes which were added, removed or flipped.
+	 * 
+	 * Bukkit applies attachment nodes in order, so parents
+	 * come before their children. If the new order can't be
+	 * reached by removing nodes and appending the added ones
+	 * the map is rebuilt instead.
+	 *
+	 * @param orig		the attachments (last pushed) permissions.
+	 * @param newPerms	the sorted permissions to push.
+	 * @param changedNodes	receives every node added, removed or flipped.
+	 * @return true if anything changed.
+	 */
+	private boolean applyDelta(Map<String, Boolean> orig, LinkedHashMap<String, Boolean> newPerms, Set<String> changedNodes) {
+
+		List<String> removed = new ArrayList<>();
+		for (String node : orig.keySet()) {
+			if (!newPerms.containsKey(node))
+				removed.add(node);
+		}
+		changedNodes.addAll(removed);
+
+		Iterator<String> kept = orig.keySet().iterator();
+		boolean inOrder = true;
+		boolean appending = false;
+		boolean changed = !removed.isEmpty();
+
+		for (Map.Entry<String, Boolean> entry : newPerms.entrySet()) {
+			Boolean current = orig.get(entry.getKey());
+
+			if (current == null) {
+				// Added.
+				appending = true;
+				changed = true;
+				changedNodes.add(entry.getKey());
+				continue;
+			}
+			if (!current.equals(entry.getValue())) {
+				changed = true;
+				changedNodes.add(entry.getKey());
+			}
+
+			if (inOrder) {
+				// Existing nodes must still follow each other, ahead of any added.
+				String next = kept.next();
+				while (!newPerms.containsKey(next))
+					next = kept.next();
+				inOrder = !appending && next.equals(entry.getKey());
+			}
+		}
+
+		if (!changed && inOrder)
+			return false;
+
+		if (inOrder) {
+			orig.keySet().removeAll(removed);
+			// Flipped nodes keep their place, added nodes go to the end.
+			orig.putAll(newPerms);
+		} else {
+			// Clear the map (faster than removing the attachment and
+			// recalculating)
+			orig.clear();
+			// Then whack our map into there
+			orig.putAll(newPerms);
+		}
+		return true;
+	}
+
+	/**
+	 * Could a change to any of these nodes alter which commands a player can use.
+	 *
+	 * @param nodes	changed nodes, without negation.
+	 * @return true if any node, or any of its children, guards a command.
+	 */
+	private boolean affectsCommands(Set<String> nodes) {
+
+		Set<String> commands = getCommandPermissions();
+
+		if (commands == COMMANDS_UNKNOWN)
+			return true;
+
+		for (String node : nodes) {
+			String lower = node.toLowerCase();
+
+			if (isCommandPermission(lower, commands))
+				return true;
+
+			ChildPermissionGraph.Closure children = getChildClosure(lower);
+			for (int i = 0; i < children.size(); i++) {
+				if (isCommandPermission(children.getName(i).toLowerCase(), commands))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isCommandPermission(String node, Set<String> commands) {
+
+		return node.startsWith("minecraft.command.") || node.startsWith("bukkit.command.") || commands.contains(node); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * The permission nodes guarding every registered command.
+	 * Built on first use after each collection.
+	 *
+	 * @return lower case nodes, or COMMANDS_UNKNOWN if the commands can't be read.
+	 */
+	private Set<String> getCommandPermissions() {
+
+		Set<String> commands = commandPermissions;
+
+		if (commands == null) {
+			commands = new HashSet<>();
+			try {
+				// Not part of the API, so found by reflection.
+				SimpleCommandMap commandMap = (SimpleCommandMap) Bukkit.getServer().getClass().getMethod("getCommandMap").invoke(Bukkit.getServer()); //$NON-NLS-1$
+
+				for (Command command : commandMap.getCommands()) {
+					String permission = command.getPermission();
+
+					if (permission != null) {
+						for (String node : permission.split(";"))
+							commands.add(node.trim().toLowerCase());
+					}
+				}
+			} catch (Exception | LinkageError ex) {
+				GroupManager.logger.log(Level.FINE, "Unable to read the registered commands.", ex);
+				commands = COMMANDS_UNKNOWN;
+			}
+			commandPermissions = commands;
+		}
+		return commands;
+	}
+
+	/**
+	 * Send a player their command list (tab-complete) after the
+	 * configured delay, covering every change made meanwhile.
+	 *
+	 * @param player
+	 */
+	private void scheduleCommandUpdate(Player player) {
+
+		if (!Bukkit.isPrimaryThread()) {
+			Bukkit.getScheduler().runTask(plugin, () -> scheduleCommandUpdate(player));
+			return;
+		}
+
+		int delay = GroupManager.getGMConfig().getCommandUpdateDelay();
+
+		// We can't schedule while disabled (shutting down).
+		if (delay == 0 || !plugin.isEnabled()) {
+			player.updateCommands();
+			return;
+		}
+
+		UUID uuid = player.getUniqueId();
+
+		if (pendingCommandUpdates.containsKey(uuid)) {
+			commandUpdatesMerged.increment();
+			return;
+		}
+
+		pendingCommandUpdates.put(uuid, Bukkit.getScheduler().runTaskLater(plugin, () -> {
+
+			pendingCommandUpdates.remove(uuid);
+			if (player.isOnline())
+				player.updateCommands();
+		}, delay));
+	}
+
+	/**
+	 * @return the number of command list updates merged into one already pending.
+	 */
+	public long getMergedCommandUpdates() {
+
+		return commandUpdatesMerged.sum();
+	}
+
+	/**
+	 * @return the number of command list updates skipped as no command was affected.
+	 */
+	public long getSkippedCommandUpdates() {
+
+		return commandUpdatesSkipped.sum();
+	}
+
+	/**
+	 * @return the number of attachment updates which changed a players permissions.
+	 */
+	public long getAppliedPushes() {
+
+		return pushesApplied.sum();
+	}
+
+	/**
+	 * @return the number of attachment updates skipped as nothing had changed.
+	 */
+	public long getSkippedPushes() {
+
+		return pushesSkipped.sum();
+	}
+
 	/**
 	 * Sort a permission node list by parent/child
+	 * 
+	 * Nodes are kept in the order given, except a parent is moved
+	 * in front of the earliest of its descendants already placed.
+	 * Only parents search for a place, and each searches the
+	 * smaller of its descendants or the nodes placed so far.
 	 *
 	 * @param permList
 	 * @return List sorted for priority
 	 */
-	private List<String> sort(List<String> permList) {
+	List<String> sort(List<String> permList) {
 
-		List<String> result = new ArrayList<>();
+		OrderedList result = new OrderedList();
+		// Placed nodes by name, without any negation.
+		Map<String, List<OrderedList.Entry>> placed = new HashMap<>();
+		Set<String> present = new HashSet<>();
 
 		for (String key : permList) {
 			/*
@@ -248,60 +843,195 @@ public class BukkitPermissions {
 			 */
 			if (!key.isEmpty()) {
 				String a = key.charAt(0) == '-' ? key.substring(1) : key;
-				Map<String, Boolean> allchildren = GroupManager.getBukkitPermissions().getAllChildren(a, new HashSet<>());
-				if (allchildren != null) {
+				ChildPermissionGraph.Closure allchildren = getChildClosure(a);
+				OrderedList.Entry entry = null;
+
+				if (!allchildren.isEmpty()) {
+					OrderedList.Entry first = null;
+
+					if (allchildren.size() < placed.size()) {
+						for (int i = 0; i < allchildren.size(); i++) {
+							List<OrderedList.Entry> entries = placed.get(allchildren.getName(i));
+							if (entries != null)
+								for (OrderedList.Entry candidate : entries)
+									if (first == null || candidate.label < first.label)
+										first = candidate;
+						}
+					} else {
+						for (Map.Entry<String, List<OrderedList.Entry>> node : placed.entrySet()) {
+							if (allchildren.contains(node.getKey()))
+								for (OrderedList.Entry candidate : node.getValue())
+									if (first == null || candidate.label < first.label)
+										first = candidate;
+						}
+					}
 
-					ListIterator<String> itr = result.listIterator();
+					// Insert the parent node before the child
+					if (first != null)
+						entry = result.insertBefore(first, key);
+				}
 
-					while (itr.hasNext()) {
-						String node = itr.next();
-						String b = node.charAt(0) == '-' ? node.substring(1) : node;
+				if (entry == null && present.add(key))
+					entry = result.append(key);
 
-						// Insert the parent node before the child
-						if (allchildren.containsKey(b)) {
-							itr.set(key);
-							itr.add(node);
-							break;
-						}
-					}
+				if (entry != null) {
+					present.add(key);
+					placed.computeIfAbsent(a, k -> new ArrayList<>(1)).add(entry);
 				}
-				if (!result.contains(key))
-					result.add(key);
 			}
 		}
 
-		return result;
+		return result.toList();
+	}
+
+	/**
+	 * All descendants of a node, as getAllChildren would find them,
+	 * answered from the child graph.
+	 *
+	 * @param node	a permission node, without any negation.
+	 * @return the Closure, empty if there are none.
+	 */
+	ChildPermissionGraph.Closure getChildClosure(String node) {
+
+		ChildPermissionGraph graph = childGraph;
+
+		if (graph == null) {
+			long version = registryVersion;
+			graph = new ChildPermissionGraph(registeredPermissions.keySet(), this::getChildren);
+
+			// Don't store if the permissions were collected again while we worked.
+			if (version == registryVersion)
+				childGraph = graph;
+		}
+		return graph.getClosure(node);
+	}
+
+	/**
+	 * A linked list whose entries carry labels increasing from head to tail,
+	 * so the order of any two entries is a single comparison.
+	 */
+	private static final class OrderedList {
+
+		private static final long GAP = 1L << 32;
+
+		private final Entry head = new Entry(null, 0);
+		private Entry tail = head;
+		private int size = 0;
+
+		static final class Entry {
+
+			final String value;
+			long label;
+			Entry previous;
+			Entry next;
+
+			Entry(String value, long label) {
+
+				this.value = value;
+				this.label = label;
+			}
+		}
+
+		Entry append(String value) {
+
+			if (tail.label > Long.MAX_VALUE - GAP)
+				relabel();
+
+			Entry entry = new Entry(value, tail.label + GAP);
+			entry.previous = tail;
+			tail.next = entry;
+			tail = entry;
+			size++;
+			return entry;
+		}
+
+		Entry insertBefore(Entry before, String value) {
+
+			if (before.label - before.previous.label < 2)
+				relabel();
+
+			Entry entry = new Entry(value, before.previous.label + ((before.label - before.previous.label) >>> 1));
+			entry.previous = before.previous;
+			entry.next = before;
+			before.previous.next = entry;
+			before.previous = entry;
+			size++;
+			return entry;
+		}
+
+		/**
+		 * Spread all labels evenly, leaving room to append.
+		 */
+		private void relabel() {
+
+			long spacing = Math.max(2, (Long.MAX_VALUE / 2) / (size + 1));
+			long label = 0;
+
+			for (Entry entry = head.next; entry != null; entry = entry.next) {
+				label += spacing;
+				entry.label = label;
+			}
+		}
+
+		List<String> toList() {
+
+			List<String> list = new ArrayList<>(size);
+
+			for (Entry entry = head.next; entry != null; entry = entry.next)
+				list.add(entry.value);
+			return list;
+		}
 	}
 
 	/**
 	 * Fetch all permissions which are registered with superperms.
 	 * {can include child nodes)
+	 * 
+	 * The result is cached until the permissions are next collected.
 	 *
 	 * @param includeChildren
-	 * @return List of all permission nodes
+	 * @return unmodifiable List of all permission nodes
 	 */
 	public List<String> getAllRegisteredPermissions(boolean includeChildren) {
 
-		List<String> perms = new ArrayList<>();
+		List<String> perms = includeChildren ? allPermissionsWithChildren : allPermissions;
 
-		for (String key : registeredPermissions.keySet()) {
-			if (!perms.contains(key)) {
-				perms.add(key);
-
-				if (includeChildren) {
-					Map<String, Boolean> children = getAllChildren(key, new HashSet<>());
-					if (children != null) {
-						for (String node : children.keySet())
-							if (!perms.contains(node))
-								perms.add(node);
-					}
-				}
-			}
+		if (perms == null) {
+			long version = registryVersion;
+			perms = expandRegisteredPermissions(includeChildren);
 
+			// Don't store if the permissions were collected again while we worked.
+			if (version == registryVersion) {
+				if (includeChildren)
+					allPermissionsWithChildren = perms;
+				else
+					allPermissions = perms;
+			}
 		}
 		return perms;
 	}
 
+	/**
+	 * Build the list of all registered permissions, in registration order,
+	 * each followed by its children (if requested).
+	 *
+	 * @param includeChildren
+	 * @return unmodifiable List of interned permission nodes
+	 */
+	private List<String> expandRegisteredPermissions(boolean includeChildren) {
+
+		Set<String> perms = new LinkedHashSet<>();
+
+		for (String key : registeredPermissions.keySet()) {
+			if (perms.add(key.intern()) && includeChildren) {
+				ChildPermissionGraph.Closure children = getChildClosure(key);
+				for (int i = 0; i < children.size(); i++)
+					perms.add(children.getName(i));
+			}
+		}
+		return Collections.unmodifiableList(new ArrayList<>(perms));
+	}
+
 	/**
 	 * Returns a map of ALL child permissions registered with bukkit
 	 * null is empty
@@ -313,6 +1043,19 @@ public class BukkitPermissions {
 	 */
 	Map<String, Boolean> getAllChildren(String node, Set<String> playerPermArray) {
 
+		return getAllChildren(node, playerPermArray, this::getChildren);
+	}
+
+	/**
+	 * Depth-first search for all children of node.
+	 *
+	 * @param node
+	 * @param playerPermArray	current list of perms to check against for negations
+	 * @param getChildren		the direct children of a node, or null if none.
+	 * @return Map of child permissions, or null if there are none.
+	 */
+	static Map<String, Boolean> getAllChildren(String node, Set<String> playerPermArray, Function<String, Map<String, Boolean>> getChildren) {
+
 		LinkedList<String> stack = new LinkedList<>();
 		Map<String, Boolean> alreadyVisited = new HashMap<>();
 		stack.push(node);
@@ -321,7 +1064,7 @@ public class BukkitPermissions {
 		while (!stack.isEmpty()) {
 			String now = stack.pop();
 
-			Map<String, Boolean> children = getChildren(now);
+			Map<String, Boolean> children = getChildren.apply(now);
 
 			if ((children != null) && (!playerPermArray.contains("-" + now))) {
 				for (String childName : children.keySet()) {
@@ -382,6 +1125,50 @@ public class BukkitPermissions {
 		}
 	}
 
+	/**
+	 * Update only the online players affected by changes since the last call.
+	 * 
+	 * Must be called on the main thread. If refreshing them all would take
+	 * longer than the configured budget the remainder continue next tick.
+	 */
+	public void updateChangedPlayers() {
+
+		for (Player player : RefreshTracker.getInstance().collect(Bukkit.getServer().getOnlinePlayers(), plugin.getWorldsHolder()))
+			pendingRefresh.add(player.getUniqueId());
+
+		if (!refreshScheduled)
+			processPendingRefresh();
+	}
+
+	/**
+	 * Refresh waiting players until this ticks budget is spent,
+	 * then schedule the rest for the next tick.
+	 */
+	private void processPendingRefresh() {
+
+		long budget = TimeUnit.MILLISECONDS.toNanos((GroupManager.getGMConfig() == null) ? GMConfiguration.DEFAULT_REFRESH_BUDGET : GroupManager.getGMConfig().getRefreshBudget());
+		long start = System.nanoTime();
+
+		Iterator<UUID> iterator = pendingRefresh.iterator();
+
+		while (iterator.hasNext()) {
+			Player player = Bukkit.getServer().getPlayer(iterator.next());
+			iterator.remove();
+
+			updatePermissions(player);
+
+			if (budget > 0 && (System.nanoTime() - start) >= budget)
+				break;
+		}
+
+		refreshScheduled = !pendingRefresh.isEmpty();
+
+		if (refreshScheduled) {
+			GroupManager.logger.log(Level.FINEST, pendingRefresh.size() + " player refreshes deferred to the next tick.");
+			Bukkit.getScheduler().runTask(plugin, this::processPendingRefresh);
+		}
+	}
+
 	/**
 	 * force Bukkit to update this Players permissions.
 	 */
@@ -398,6 +1185,9 @@ public class BukkitPermissions {
 	 */
 	private void removeAttachment(String uuid) {
 
+		// Drop any update still being computed.
+		latestUpdate.remove(uuid);
+
 		if (attachments.containsKey(uuid)) {
 			attachments.get(uuid).remove();
 			attachments.remove(uuid);
@@ -416,6 +1206,11 @@ public class BukkitPermissions {
 			attachments.get(key).remove();
 		}
 		attachments.clear();
+		latestUpdate.clear();
+
+		for (BukkitTask task : pendingCommandUpdates.values())
+			task.cancel();
+		pendingCommandUpdates.clear();
 	}
 
 	/**
@@ -428,18 +1223,16 @@ public class BukkitPermissions {
 		@EventHandler(priority = EventPriority.LOWEST)
 		public void onPlayerAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
 			
-			GroupManager.logger.log(Level.INFO, "Async Player Login event refresh data... ");
 			/*
-			 * Ensure our data is up to date
-			 * before the player joins.
+			 * Ensure this players data is up to date
+			 * before they join. Everything else is
+			 * kept current by the regular refresh.
 			 */
-			try {
-				plugin.getWorldsHolder().refreshData(null).get();
-			} catch (InterruptedException | ExecutionException e) {
-				e.printStackTrace();
-			}
-			
-			GroupManager.logger.log(Level.INFO, "Async Player Login event finshed. ");
+			plugin.getWorldsHolder().refreshUser(event.getUniqueId().toString());
+
+			// Have their permissions ready for the join.
+			if (GroupManager.isLoaded())
+				warmUp(event.getUniqueId().toString());
 		}
 		
 		@EventHandler(priority = EventPriority.LOWEST)
@@ -485,15 +1278,35 @@ public class BukkitPermissions {
 
 			GroupManager.logger.log(Level.FINEST, "Player Join event: " + player.getName());
 
+			String uuid = player.getUniqueId().toString();
+
 			/*
-			 * Tidy up any lose ends
+			 * Tidy up any lose ends from an earlier session, but keep
+			 * the attachment this Player was given at login
+			 * until its replacement is ready.
 			 */
-			removeAttachment(player.getUniqueId().toString());
+			PermissionAttachment existing = attachments.get(uuid);
+			if (existing != null && existing.getPermissible() != player)
+				removeAttachment(uuid);
+
+			// Claimed before the User is reset, which may alter it.
+			LinkedHashMap<String, Boolean> warmed = takeWarmUp(player);
 
 			// force GM to create the player if they are not already listed.
-			plugin.getWorldsHolder().getWorldData(player.getWorld().getName()).getUser(player.getUniqueId().toString(), player.getName());
+			OverloadedWorldHolder worldData = plugin.getWorldsHolder().getWorldData(player.getWorld().getName());
+			User user = worldData.getUser(uuid, player.getName());
 
-			updatePermissions(player);
+			/*
+			 * Attach now if computed during pre-login, or if their
+			 * merged permissions are cached, so other plugins
+			 * see them during the join. Else compute async.
+			 */
+			if (warmed != null)
+				applyPermissions(player, user, warmed, nextUpdate(uuid));
+			else if (worldData.getPermissionsHandler().isPermissionsCached(user))
+				applyPermissions(player, user, computePermissions(uuid, player.getWorld().getName()), nextUpdate(uuid));
+			else
+				updatePermissionsAsync(player, null);
 
 			setPlayer_join(false);
 		}
@@ -506,7 +1319,7 @@ public class BukkitPermissions {
 			// force GM to create the player if they are not already listed.
 			plugin.getWorldsHolder().getWorldData(player.getWorld().getName()).getUser(player.getUniqueId().toString(), player.getName());
 
-			updatePermissions(player, player.getWorld().getName());
+			updatePermissionsAsync(player, player.getWorld().getName());
 		}
 
 		/*
@@ -528,12 +1341,18 @@ public class BukkitPermissions {
 			 * force remove any attachments as bukkit may not,
 			 * but delay it so we don't wipe the player perms
 			 * before all plugins have finished.
+			 * Drop their cached permissions at the same time.
 			 */
 			Bukkit.getScheduler().runTask(plugin, () -> {
 				removeAttachment(uuid);
-				plugin.getWorldsHolder().refreshData(null);
+
+				for (OverloadedWorldHolder worldData : plugin.getWorldsHolder().allWorldsDataList())
+					worldData.getPermissionsHandler().forgetUser(uuid);
 			});
-			
+
+			lastWorlds.put(uuid, player.getWorld().getName());
+
+			scheduleQuitSave(uuid, player.getWorld().getName());
 		}
 	}
 
@@ -545,14 +1364,38 @@ public class BukkitPermissions {
 			if (!GroupManager.isLoaded())
 				return;
 
-			collectPermissions();
-			updateAllPlayers();
+			scheduleCollectPermissions();
 		}
 
 		@EventHandler(priority = EventPriority.NORMAL)
 		public void onPluginDisable(PluginDisableEvent event) {
 
-			collectPermissions();
+			scheduleCollectPermissions();
+		}
+	}
+
+	/**
+	 * Permissions computed during pre-login, and the state they were computed from.
+	 * Only changes to this User or the Groups it inherits make it stale.
+	 */
+	private static final class WarmUp {
+
+		final OverloadedWorldHolder holder;
+		final AnjoPermissionsHandler.MergedPerms stamp;
+		final long expires;
+		final LinkedHashMap<String, Boolean> perms;
+
+		WarmUp(OverloadedWorldHolder holder, AnjoPermissionsHandler.MergedPerms stamp, long expires, LinkedHashMap<String, Boolean> perms) {
+
+			this.holder = holder;
+			this.stamp = stamp;
+			this.expires = expires;
+			this.perms = perms;
+		}
+
+		boolean isValid(OverloadedWorldHolder holder, String uuid, long now) {
+
+			return this.holder == holder && now < expires && holder.getUser(uuid) == stamp.user && holder.getPermissionsHandler().isStampCurrent(stamp);
 		}
 	}
 
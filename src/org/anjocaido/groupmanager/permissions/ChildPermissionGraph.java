@@ -0,0 +1,176 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An immutable index of the child permissions registered with Bukkit.
+ *
+ * Every node seen (registered or only named as a child) has an id,
+ * and every registered node has its full set of descendants
+ * computed up front. Built once per collection of the
+ * registered permissions, so lookups need no traversal.
+ *
+ * @author ElgarL
+ */
+final class ChildPermissionGraph {
+
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final Map<String, Closure> closures = new HashMap<>();
+	private final Function<String, Map<String, Boolean>> children;
+
+	/**
+	 * @param registered	lower case names of all registered permissions.
+	 * @param children		the direct children of a node, or null if none.
+	 */
+	ChildPermissionGraph(Iterable<String> registered, Function<String, Map<String, Boolean>> children) {
+
+		this.children = children;
+
+		for (String node : registered) {
+			Map<String, Boolean> all = BukkitPermissions.getAllChildren(node, Collections.emptySet(), children);
+			if (all != null)
+				closures.put(node.intern(), closure(all, ids));
+		}
+	}
+
+	/**
+	 * Every descendant of a node, with the value it is granted with.
+	 * Answered from the index unless the node is mixed case.
+	 *
+	 * @param node	a permission node, without any negation.
+	 * @return the Closure, empty if the node has no children.
+	 */
+	Closure getClosure(String node) {
+
+		Closure closure = closures.get(node);
+
+		if (closure != null)
+			return closure;
+
+		// Only the first node of a traversal is looked up as given.
+		for (int i = 0; i < node.length(); i++) {
+			if (Character.isUpperCase(node.charAt(i))) {
+				Map<String, Boolean> all = BukkitPermissions.getAllChildren(node, Collections.emptySet(), children);
+				// Indexed privately, as the graph is shared.
+				return (all == null) ? Closure.EMPTY : closure(all, new HashMap<>());
+			}
+		}
+		return Closure.EMPTY;
+	}
+
+	/**
+	 * Index a traversal result, keeping its iteration order.
+	 */
+	private static Closure closure(Map<String, Boolean> all, Map<String, Integer> ids) {
+
+		String[] names = new String[all.size()];
+		boolean[] values = new boolean[all.size()];
+		int[] sorted = new int[all.size()];
+		int i = 0;
+
+		for (Map.Entry<String, Boolean> entry : all.entrySet()) {
+			names[i] = entry.getKey().intern();
+			values[i] = entry.getValue();
+			sorted[i] = id(names[i], ids);
+			i++;
+		}
+		Arrays.sort(sorted);
+
+		return new Closure(ids, names, values, sorted);
+	}
+
+	private static int id(String node, Map<String, Integer> ids) {
+
+		Integer id = ids.get(node);
+
+		if (id == null) {
+			id = ids.size();
+			ids.put(node, id);
+		}
+		return id;
+	}
+
+	/**
+	 * The descendants of one node. Immutable, and queried without allocating.
+	 */
+	static final class Closure {
+
+		static final Closure EMPTY = new Closure(new HashMap<>(), new String[0], new boolean[0], new int[0]);
+
+		private final Map<String, Integer> ids;
+		private final String[] names;
+		private final boolean[] values;
+		private final int[] sorted;
+
+		private Closure(Map<String, Integer> ids, String[] names, boolean[] values, int[] sorted) {
+
+			this.ids = ids;
+			this.names = names;
+			this.values = values;
+			this.sorted = sorted;
+		}
+
+		/**
+		 * @return the number of descendants.
+		 */
+		int size() {
+
+			return names.length;
+		}
+
+		boolean isEmpty() {
+
+			return names.length == 0;
+		}
+
+		/**
+		 * @param index	0 to size() - 1.
+		 * @return the name of a descendant.
+		 */
+		String getName(int index) {
+
+			return names[index];
+		}
+
+		/**
+		 * @param index	0 to size() - 1.
+		 * @return the value the descendant is granted with.
+		 */
+		boolean getValue(int index) {
+
+			return values[index];
+		}
+
+		/**
+		 * @param node	a permission node, without any negation.
+		 * @return true if the node is a descendant.
+		 */
+		boolean contains(String node) {
+
+			Integer id = ids.get(node);
+
+			return id != null && Arrays.binarySearch(sorted, id) >= 0;
+		}
+	}
+}
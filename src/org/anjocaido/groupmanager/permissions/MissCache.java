@@ -0,0 +1,138 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, least recently used set of permission nodes
+ * a single User was recently found not to have.
+ *
+ * Held by a PermissionSnapshot, so it is discarded along with
+ * the snapshot whenever data it was built from changes.
+ *
+ * Lookups take no lock. Each node has a flag set when it is found,
+ * and nodes are evicted in the order they were added, skipping (once)
+ * any found since the last pass (CLOCK, or second chance). Eviction is
+ * approximately, rather than strictly, LRU and takes constant time on average.
+ *
+ * @author ElgarL
+ */
+final class MissCache {
+
+	private final int capacity;
+	private final Counters counters;
+	private final Map<String, Stamp> entries = new ConcurrentHashMap<>();
+	/**
+	 * Nodes in the order they were added, guarded by this.
+	 */
+	private final String[] ring;
+	private int hand = 0;
+
+	/**
+	 * @param capacity	maximum number of nodes remembered.
+	 * @param counters	where to record hits, misses and evictions.
+	 */
+	MissCache(int capacity, Counters counters) {
+
+		this.capacity = capacity;
+		this.counters = counters;
+		this.ring = new String[capacity];
+	}
+
+	/**
+	 * Was this node recently found missing.
+	 *
+	 * @param node	the node asked for.
+	 * @return true if it is known not to be held.
+	 */
+	boolean contains(String node) {
+
+		Stamp stamp = entries.get(node);
+
+		if (stamp != null) {
+			if (!stamp.used)
+				stamp.used = true;
+			counters.hits.increment();
+			return true;
+		}
+		counters.misses.increment();
+		return false;
+	}
+
+	/**
+	 * Remember this node is not held.
+	 *
+	 * @param node	the node asked for.
+	 */
+	void add(String node) {
+
+		if (entries.putIfAbsent(node, new Stamp()) == null)
+			place(node);
+	}
+
+	/**
+	 * Give a new node a slot, evicting the first
+	 * node in the way which has not been found since the last pass.
+	 * Only called from the miss path.
+	 */
+	private synchronized void place(String node) {
+
+		while (true) {
+			String current = ring[hand];
+
+			if (current != null) {
+				Stamp stamp = entries.get(current);
+
+				if (stamp != null && stamp.used) {
+					// Found since we last passed, so give it another chance.
+					stamp.used = false;
+					hand = (hand + 1) % capacity;
+					continue;
+				}
+
+				if (entries.remove(current) != null)
+					counters.evictions.increment();
+			}
+
+			ring[hand] = node;
+			hand = (hand + 1) % capacity;
+			return;
+		}
+	}
+
+	/**
+	 * Has a node been found since the last eviction pass.
+	 */
+	private static final class Stamp {
+
+		volatile boolean used;
+	}
+
+	/**
+	 * Hit, miss and eviction totals shared by all caches in a world.
+	 */
+	static final class Counters {
+
+		final LongAdder hits = new LongAdder();
+		final LongAdder misses = new LongAdder();
+		final LongAdder evictions = new LongAdder();
+	}
+}
@@ -0,0 +1,567 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.anjocaido.groupmanager.data.DataUnit;
+import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.data.User;
+import org.anjocaido.groupmanager.dataholder.InheritanceGraph;
+import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
+import org.anjocaido.groupmanager.utils.PermissionCheckResult;
+
+/**
+ * An immutable, compiled view of every permission node
+ * which applies to a single User in a single world.
+ *
+ * The User, the primary group (with inheritance) and each
+ * sub-group (with inheritance) are flattened once into an
+ * exact node table and a wildcard prefix tree. Each entry holds
+ * the final result of the same EXCEPTION/NEGATION/FOUND
+ * precedence rules used by {@link AnjoPermissionsHandler},
+ * so a check is a single lookup rather than a traversal.
+ *
+ * The exact table is open addressed and compared case-insensitively
+ * in place, so {@link #checkPermissionCode(String)} does not allocate.
+ *
+ * Nodes found missing are remembered in a bounded MissCache,
+ * so repeated probes for nodes nobody holds skip the lookup.
+ * Remembering a node is the one allocation on the check path,
+ * an entry per new miss. Held nodes and repeat misses allocate nothing.
+ *
+ * A snapshot remembers the version of every DataUnit it was built from,
+ * and of the worlds inheritance graph. Whenever the DataUnit generation
+ * moves these are compared once, so a change elsewhere (another User,
+ * another world) does not discard it.
+ *
+ * @author ElgarL
+ */
+public class PermissionSnapshot {
+
+	private static final String NO_OFFLINE_PERMS = "groupmanager.noofflineperms"; //$NON-NLS-1$
+
+	private static final Resolution NOT_FOUND = new Resolution(PermissionCheckResult.Type.NOTFOUND, null);
+
+	private final User user;
+	/**
+	 * The latest DataUnit generation this snapshot was found current at.
+	 */
+	private volatile long generation;
+	private final InheritanceGraph graph;
+	private final long graphVersion;
+
+	/**
+	 * Every DataUnit which contributes to this snapshot, in check order.
+	 */
+	private final List<DataUnit> units = new ArrayList<>();
+	/**
+	 * The version of each unit, read before its data.
+	 */
+	private final List<Long> unitVersions = new ArrayList<>();
+	/**
+	 * The component each unit belongs to.
+	 * 0 = User, 1 = primary group, 2+ = sub-groups.
+	 */
+	private final List<Integer> unitComponent = new ArrayList<>();
+	private int components = 0;
+
+	/*
+	 * Exact nodes (folded to lower case), with linear probing.
+	 */
+	private final String[] exactKeys;
+	private final Resolution[] exactValues;
+	private final Node wildcards;
+	private final Resolution noOfflinePerms;
+	/**
+	 * Recently missed nodes, or null if disabled.
+	 */
+	private final MissCache misses;
+
+	/**
+	 * Compile all permissions for this User.
+	 *
+	 * @param holder		the WorldDataHolder used to resolve group names.
+	 * @param user			the User to compile.
+	 * @param generation	the DataUnit generation this data was read at.
+	 * @param misses		a MissCache for this User, or null.
+	 */
+	PermissionSnapshot(WorldDataHolder holder, User user, long generation, MissCache misses) {
+
+		this.user = user;
+		this.generation = generation;
+		this.misses = misses;
+		this.graph = holder.getInheritanceGraph();
+		this.graphVersion = graph.getVersion();
+
+		Map<String, List<Match>> exactMatches = new HashMap<>();
+		Builder root = new Builder();
+		List<Match> offlineMatches = new ArrayList<>();
+
+		// User nodes.
+		addUnit(user, components++);
+
+		// Primary group and inheritance.
+		Group primary = user.getGroup();
+		if (primary != null)
+			addClosure(holder, primary, components);
+		components++;
+
+		// Sub-groups and their inheritance.
+		for (Group subGroup : user.subGroupListCopy())
+			addClosure(holder, subGroup, components++);
+
+		/*
+		 * Sort every node into the exact map or the wildcard tree.
+		 */
+		for (int index = 0; index < units.size(); index++) {
+			for (String access : units.get(index).getPermissionList()) {
+
+				if (access.isEmpty())
+					continue;
+
+				PermissionCheckResult.Type type = PermissionCheckResult.Type.FOUND;
+				String body = access;
+
+				if (access.startsWith("+")) { //$NON-NLS-1$
+					type = PermissionCheckResult.Type.EXCEPTION;
+					body = access.substring(1);
+				} else if (access.startsWith("-")) { //$NON-NLS-1$
+					type = PermissionCheckResult.Type.NEGATION;
+					body = access.substring(1);
+				}
+
+				Match match = new Match(index, type);
+
+				if (body.isEmpty() || body.endsWith("*")) { //$NON-NLS-1$
+					// '*', 'node.*' or a bare '+'/'-' all match by prefix.
+					root.insert(fold(body.isEmpty() ? body : body.substring(0, body.length() - 1))).matches.add(match);
+				} else {
+					exactMatches.computeIfAbsent(fold(body), k -> new ArrayList<>()).add(match);
+				}
+
+				// The offline node is only ever matched exactly.
+				if (NO_OFFLINE_PERMS.equals(access))
+					offlineMatches.add(match);
+			}
+		}
+
+		// Size the exact table to at most half full.
+		int capacity = 1;
+		while (capacity < exactMatches.size() * 2)
+			capacity <<= 1;
+
+		exactKeys = new String[capacity];
+		exactValues = new Resolution[capacity];
+
+		// Exact nodes also inherit any wildcards covering them.
+		for (Map.Entry<String, List<Match>> entry : exactMatches.entrySet()) {
+			List<Match> matches = new ArrayList<>(entry.getValue());
+			root.collect(entry.getKey(), matches);
+
+			int slot = hash(entry.getKey(), 0) & (capacity - 1);
+			while (exactKeys[slot] != null)
+				slot = (slot + 1) & (capacity - 1);
+
+			exactKeys[slot] = entry.getKey();
+			exactValues[slot] = resolve(matches);
+		}
+
+		wildcards = root.compile(new ArrayList<>(), NOT_FOUND);
+		noOfflinePerms = resolve(offlineMatches);
+	}
+
+	/**
+	 * Add all groups in the inheritance of start, Breadth-first,
+	 * matching the order used in checkGroupPermissionWithInheritance.
+	 */
+	private void addClosure(WorldDataHolder holder, Group start, int component) {
+
+		for (Group now : holder.getInheritanceGraph().getClosure(start).getGroups())
+			addUnit(now, component);
+	}
+
+	private void addUnit(DataUnit unit, int component) {
+
+		units.add(unit);
+		unitVersions.add(unit.getVersion());
+		unitComponent.add(component);
+	}
+
+	/**
+	 * Is this snapshot still current for this User object.
+	 *
+	 * If the generation has moved, but nothing this snapshot
+	 * was built from has changed, it is kept at the new generation.
+	 *
+	 * @param user			the User being checked.
+	 * @param generation	the current DataUnit generation.
+	 * @return true if this snapshot can be used.
+	 */
+	boolean isValid(User user, long generation) {
+
+		if (this.user != user)
+			return false;
+
+		if (this.generation == generation)
+			return true;
+
+		if (graph.getVersion() != graphVersion)
+			return false;
+
+		for (int index = 0; index < units.size(); index++) {
+			if (units.get(index).getVersion() != unitVersions.get(index))
+				return false;
+		}
+
+		this.generation = generation;
+		return true;
+	}
+
+	/**
+	 * Has this snapshot been found current at this generation.
+	 * A false result only means it must be checked with {@link #isValid(User, long)}.
+	 *
+	 * @param generation	the current DataUnit generation.
+	 * @return true if this snapshot can be used.
+	 */
+	boolean isValid(long generation) {
+
+		return this.generation == generation;
+	}
+
+	/**
+	 * @return true if this User has 'groupmanager.noofflineperms'.
+	 */
+	boolean hasNoOfflinePerms() {
+
+		return noOfflinePerms.type == PermissionCheckResult.Type.FOUND;
+	}
+
+	/**
+	 * Look up a permission node in this snapshot.
+	 * Bukkit permissions are not considered.
+	 *
+	 * @param targetPermission	the node to test.
+	 * @return a new PermissionCheckResult.
+	 */
+	PermissionCheckResult checkPermission(String targetPermission) {
+
+		Resolution resolution = find(targetPermission);
+
+		PermissionCheckResult result = new PermissionCheckResult();
+		result.accessLevel = targetPermission;
+
+		if (resolution.type != PermissionCheckResult.Type.NOTFOUND) {
+			result.askedPermission = targetPermission;
+			result.owner = resolution.owner;
+			result.resultType = resolution.type;
+		}
+		return result;
+	}
+
+	/**
+	 * Look up a permission node in this snapshot without allocating,
+	 * unless it is a miss not yet in the MissCache.
+	 * Bukkit permissions are not considered.
+	 *
+	 * @param targetPermission	the node to test.
+	 * @return a PermissionCheckResult result code.
+	 */
+	int checkPermissionCode(String targetPermission) {
+
+		return find(targetPermission).type.ordinal();
+	}
+
+	private Resolution find(String targetPermission) {
+
+		if (misses != null && misses.contains(targetPermission))
+			return NOT_FOUND;
+
+		Resolution resolution = lookup(targetPermission);
+
+		if (misses != null && resolution.type == PermissionCheckResult.Type.NOTFOUND)
+			misses.add(targetPermission);
+
+		return resolution;
+	}
+
+	private Resolution lookup(String targetPermission) {
+
+		if (NO_OFFLINE_PERMS.equals(targetPermission))
+			return noOfflinePerms;
+
+		// A leading '+' or '-' on the asked node is ignored.
+		int offset = (targetPermission.startsWith("+") || targetPermission.startsWith("-")) ? 1 : 0; //$NON-NLS-1$ //$NON-NLS-2$
+
+		int mask = exactKeys.length - 1;
+		int slot = hash(targetPermission, offset) & mask;
+		String key;
+
+		while ((key = exactKeys[slot]) != null) {
+			if (matches(key, targetPermission, offset))
+				return exactValues[slot];
+			slot = (slot + 1) & mask;
+		}
+		return wildcards.find(targetPermission, offset);
+	}
+
+	/**
+	 * Reduce all matching nodes to a single result,
+	 * following the same rules as AnjoPermissionsHandler.
+	 */
+	private Resolution resolve(List<Match> matches) {
+
+		if (matches.isEmpty())
+			return NOT_FOUND;
+
+		Resolution result = NOT_FOUND;
+
+		// User nodes.
+		Resolution resultUser = resolveComponent(matches, 0);
+		if (resultUser.type == PermissionCheckResult.Type.EXCEPTION)
+			return resultUser;
+		if (resultUser.type != PermissionCheckResult.Type.NOTFOUND)
+			result = resultUser;
+
+		// Primary group.
+		Resolution resultGroup = resolveComponent(matches, 1);
+		if (resultGroup.type == PermissionCheckResult.Type.EXCEPTION)
+			return resultGroup;
+		if (result.type == PermissionCheckResult.Type.NOTFOUND)
+			result = resultGroup;
+
+		// Do we have a high level negation?
+		boolean negated = (result.type == PermissionCheckResult.Type.NEGATION);
+
+		// Sub-groups.
+		for (int component = 2; component < components; component++) {
+			Resolution resultSubGroup = resolveComponent(matches, component);
+
+			if (resultSubGroup.type == PermissionCheckResult.Type.EXCEPTION) {
+				return resultSubGroup;
+
+			} else if ((resultSubGroup.type == PermissionCheckResult.Type.FOUND) && (result.type != PermissionCheckResult.Type.NEGATION) && !negated) {
+				result = resultSubGroup;
+
+			} else if ((resultSubGroup.type == PermissionCheckResult.Type.NEGATION) && !negated) {
+				result = resultSubGroup;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The result for one component. Any Exception wins,
+	 * otherwise the first unit (in check order) with a match.
+	 * Within a unit '+' beats '-' beats a plain node.
+	 */
+	private Resolution resolveComponent(List<Match> matches, int component) {
+
+		int exception = -1;
+		int first = -1;
+		PermissionCheckResult.Type firstType = PermissionCheckResult.Type.NOTFOUND;
+
+		for (Match match : matches) {
+			if (unitComponent.get(match.unit) != component)
+				continue;
+
+			if (match.type == PermissionCheckResult.Type.EXCEPTION && (exception < 0 || match.unit < exception))
+				exception = match.unit;
+
+			if (first < 0 || match.unit < first) {
+				first = match.unit;
+				firstType = match.type;
+			} else if (match.unit == first && match.type.ordinal() < firstType.ordinal()) {
+				firstType = match.type;
+			}
+		}
+
+		if (exception >= 0)
+			return new Resolution(PermissionCheckResult.Type.EXCEPTION, units.get(exception));
+		if (first >= 0)
+			return new Resolution(firstType, units.get(first));
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Fold a character the same way String.regionMatches(true, ...) compares them.
+	 */
+	private static char fold(char c) {
+
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * Case-insensitive hash of node, from offset.
+	 */
+	private static int hash(String node, int offset) {
+
+		int hash = 0;
+		for (int i = offset; i < node.length(); i++)
+			hash = 31 * hash + fold(node.charAt(i));
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Does node, from offset, fold to the same text as key.
+	 */
+	private static boolean matches(String key, String node, int offset) {
+
+		if (key.length() != node.length() - offset)
+			return false;
+
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) != fold(node.charAt(offset + i)))
+				return false;
+		}
+		return true;
+	}
+
+	private static String fold(String node) {
+
+		char[] chars = node.toCharArray();
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = fold(chars[i]);
+		return new String(chars);
+	}
+
+	/**
+	 * A node found on a unit.
+	 */
+	private static final class Match {
+
+		final int unit;
+		final PermissionCheckResult.Type type;
+
+		Match(int unit, PermissionCheckResult.Type type) {
+
+			this.unit = unit;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * A final, precomputed result.
+	 */
+	private static final class Resolution {
+
+		final PermissionCheckResult.Type type;
+		final DataUnit owner;
+
+		Resolution(PermissionCheckResult.Type type, DataUnit owner) {
+
+			this.type = type;
+			this.owner = owner;
+		}
+	}
+
+	/**
+	 * Mutable prefix tree node, only used while compiling.
+	 */
+	private final class Builder {
+
+		final TreeMap<Character, Builder> children = new TreeMap<>();
+		final List<Match> matches = new ArrayList<>();
+
+		Builder insert(String prefix) {
+
+			Builder node = this;
+			for (int i = 0; i < prefix.length(); i++)
+				node = node.children.computeIfAbsent(prefix.charAt(i), k -> new Builder());
+			return node;
+		}
+
+		/**
+		 * Add the matches of every wildcard which is a prefix of node.
+		 */
+		void collect(String node, List<Match> result) {
+
+			Builder current = this;
+			result.addAll(current.matches);
+
+			for (int i = 0; i < node.length(); i++) {
+				current = current.children.get(node.charAt(i));
+				if (current == null)
+					return;
+				result.addAll(current.matches);
+			}
+		}
+
+		Node compile(List<Match> inherited, Resolution inheritedResolution) {
+
+			List<Match> matches = inherited;
+			Resolution resolution = inheritedResolution;
+
+			if (!this.matches.isEmpty()) {
+				matches = new ArrayList<>(inherited);
+				matches.addAll(this.matches);
+				resolution = resolve(matches);
+			}
+
+			char[] keys = new char[children.size()];
+			Node[] next = new Node[children.size()];
+			int i = 0;
+			for (Map.Entry<Character, Builder> child : children.entrySet()) {
+				keys[i] = child.getKey();
+				next[i++] = child.getValue().compile(matches, resolution);
+			}
+			return new Node(keys, next, resolution);
+		}
+	}
+
+	/**
+	 * Immutable prefix tree node.
+	 * Each node holds the result for every wildcard on its path.
+	 */
+	private static final class Node {
+
+		final char[] keys;
+		final Node[] next;
+		final Resolution resolution;
+
+		Node(char[] keys, Node[] next, Resolution resolution) {
+
+			this.keys = keys;
+			this.next = next;
+			this.resolution = resolution;
+		}
+
+		/**
+		 * Walk as deep as the node allows and return
+		 * the result of the deepest matching prefix.
+		 */
+		Resolution find(String node, int offset) {
+
+			Node current = this;
+
+			for (int i = offset; i < node.length(); i++) {
+				int index = Arrays.binarySearch(current.keys, fold(node.charAt(i)));
+				if (index < 0)
+					break;
+				current = current.next[index];
+			}
+			return current.resolution;
+		}
+	}
+}
@@ -20,7 +20,11 @@ package org.anjocaido.groupmanager.permissions;
 //import java.util.Collection;
 //import java.util.Map;
 //import java.util.Set;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.anjocaido.groupmanager.data.Group;
@@ -54,6 +58,43 @@ public abstract class PermissionsReaderInterface {
 	 */
 	public abstract boolean permission(Player player, String string);
 
+	/**
+	 * Check a number of permission nodes for one Player.
+	 * 
+	 * @param player
+	 * @param nodes
+	 * @return BitSet with bit n set if the player has nodes.get(n)
+	 */
+	public BitSet permissions(Player player, List<String> nodes) {
+
+		BitSet result = new BitSet(nodes.size());
+		int index = 0;
+
+		for (String node : nodes) {
+			if (permission(player, node))
+				result.set(index);
+			index++;
+		}
+		return result;
+	}
+
+	/**
+	 * Check a number of permission nodes for one Player.
+	 * 
+	 * @param player
+	 * @param nodes
+	 * @return Map of each node to true if the player has it, in the order given.
+	 */
+	public Map<String, Boolean> permissionMap(Player player, Collection<String> nodes) {
+
+		Map<String, Boolean> result = new LinkedHashMap<>();
+
+		for (String node : nodes)
+			result.put(node, permission(player, node));
+
+		return result;
+	}
+
 	/**
 	 * 
 	 * @param userName
@@ -0,0 +1,173 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.data.User;
+import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
+import org.anjocaido.groupmanager.dataholder.worlds.WorldsHolder;
+import org.bukkit.entity.Player;
+
+/**
+ * Tracks which Users need their Superperms refreshed.
+ *
+ * Users are marked when they are altered directly.
+ * Groups are marked when they are altered, which affects
+ * every User whose primary or sub-groups inherit them.
+ * Changes we can't attribute (loading, adding or removing groups)
+ * mark everyone.
+ *
+ * @author ElgarL
+ */
+public class RefreshTracker {
+
+	private static volatile RefreshTracker instance;
+
+	private final Set<String> users = ConcurrentHashMap.newKeySet();
+	private final Set<String> groups = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean all = new AtomicBoolean();
+
+	private RefreshTracker() {}
+
+	public static RefreshTracker getInstance() {
+
+		if (instance == null) {
+			synchronized (RefreshTracker.class) {
+				if (instance == null) {
+					instance = new RefreshTracker();
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * A User was altered.
+	 *
+	 * @param uUID	the UUID (or name) of the User.
+	 */
+	public void markUser(String uUID) {
+
+		users.add(uUID.toLowerCase());
+	}
+
+	/**
+	 * A Group was altered, so all its members (direct or inherited) are affected.
+	 *
+	 * @param groupName	the name of the Group.
+	 */
+	public void markGroup(String groupName) {
+
+		groups.add(groupName.toLowerCase());
+	}
+
+	/**
+	 * Any player may be affected.
+	 */
+	public void markAll() {
+
+		all.set(true);
+	}
+
+	/**
+	 * @return true if nothing has been marked since the last collect.
+	 */
+	public boolean isEmpty() {
+
+		return !all.get() && users.isEmpty() && groups.isEmpty();
+	}
+
+	/**
+	 * Clear all marks, returning the players they affect.
+	 *
+	 * @param online		players currently online.
+	 * @param worldsHolder	to find each players User in their current world.
+	 * @return the players needing a refresh.
+	 */
+	public List<Player> collect(Collection<? extends Player> online, WorldsHolder worldsHolder) {
+
+		boolean everyone = all.getAndSet(false);
+		Set<String> dirtyUsers = drain(users);
+		Set<String> dirtyGroups = drain(groups);
+
+		List<Player> result = new ArrayList<>();
+
+		for (Player player : online) {
+			if (everyone || dirtyUsers.contains(player.getUniqueId().toString()) || dirtyUsers.contains(player.getName().toLowerCase())) {
+				result.add(player);
+				continue;
+			}
+
+			if (!dirtyGroups.isEmpty() && inherits(player, worldsHolder, dirtyGroups))
+				result.add(player);
+		}
+		return result;
+	}
+
+	/**
+	 * Does this players primary group, or any sub-group, inherit a marked Group.
+	 */
+	private boolean inherits(Player player, WorldsHolder worldsHolder, Set<String> dirtyGroups) {
+
+		WorldDataHolder worldData = worldsHolder.getWorldData(player.getWorld().getName());
+		User user = worldData.getUser(player.getUniqueId().toString(), player.getName());
+
+		if (inherits(worldData, user.getGroup(), dirtyGroups))
+			return true;
+
+		for (Group subGroup : user.subGroupListCopy()) {
+			if (inherits(worldData, subGroup, dirtyGroups))
+				return true;
+		}
+		return false;
+	}
+
+	private boolean inherits(WorldDataHolder worldData, Group group, Set<String> dirtyGroups) {
+
+		for (String name : worldData.getInheritanceGraph().getClosure(group).getNames()) {
+			if (dirtyGroups.contains(name.toLowerCase()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Remove and return everything currently in a set.
+	 * Anything added while we work is either returned or left for next time.
+	 */
+	private static Set<String> drain(Set<String> source) {
+
+		Set<String> result = new HashSet<>();
+		Iterator<String> iterator = source.iterator();
+
+		while (iterator.hasNext()) {
+			result.add(iterator.next());
+			iterator.remove();
+		}
+		return result;
+	}
+}
@@ -35,6 +35,7 @@ import org.anjocaido.groupmanager.events.GMSystemEvent;
 import org.anjocaido.groupmanager.localization.Messages;
 import org.anjocaido.groupmanager.storage.hikari.HikariCPDataSource;
 import org.anjocaido.groupmanager.storage.statements.Statements;
+import org.anjocaido.groupmanager.utils.GMExecutor;
 import org.apache.commons.lang.StringUtils;
 import org.bukkit.World;
 
@@ -164,7 +165,7 @@ public class CoreSQL implements DataSource {
 
 	private CompletableFuture<Void> loadGlobalGroupsAsync(GlobalGroups globalGroups) {
 
-		return CompletableFuture.supplyAsync(() -> {
+		return GMExecutor.getInstance().supplyAsync(() -> {
 
 			Set<Group> groups = new HashSet<>();
 
@@ -227,7 +228,7 @@ public class CoreSQL implements DataSource {
 
 		GlobalGroups globalGroups = GroupManager.getGlobalGroups();
 
-		CompletableFuture.supplyAsync(() -> {
+		GMExecutor.getInstance().supplyAsync(() -> {
 
 			Long changed = null;
 
@@ -463,7 +464,7 @@ public class CoreSQL implements DataSource {
 
 	private CompletableFuture<Void> loadGroupsAsync(WorldDataHolder dataHolder) {
 
-		return CompletableFuture.supplyAsync(() -> {
+		return GMExecutor.getInstance().supplyAsync(() -> {
 
 			Map<String, List<String>> inheritanceMap = new HashMap<>();
 
@@ -600,7 +601,7 @@ public class CoreSQL implements DataSource {
 
 	private CompletableFuture<Void> loadUsersAsync(WorldDataHolder dataHolder) {
 
-		return CompletableFuture.supplyAsync(() -> {
+		return GMExecutor.getInstance().supplyAsync(() -> {
 
 			String tableName = (GroupManager.getGMConfig().getDatabaseGroup() + "_" + dataHolder.getName() + "_USERS").toUpperCase();
 
@@ -610,89 +611,7 @@ public class CoreSQL implements DataSource {
 				ResultSet result = query.executeQuery();
 
 				while (result.next()) {
-
-					// UUID,LASTNAME,PRIMARYGROUP,SUBGROUPS,PERMISSIONS,INFO
-
-					String id = result.getString("UUID");
-					String lastName = result.getString("LASTNAME");
-					String group = result.getString("PRIMARYGROUP");
-					String subGroups = result.getString("SUBGROUPS");
-					String permissions = result.getString("PERMISSIONS");
-					String infoBlob = result.getString("INFO");
-
-					User user = dataHolder.createUser(id);
-					if (user == null) {
-						throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_DUPLICATE_USER"), id, dataHolder.getName()));
-					}
-
-					if (lastName != null) {
-						user.setLastName(lastName);
-					}
-
-					// Add all permissions.
-					if (permissions != null) {
-						Arrays.stream(permissions.split(",")).forEach(perm -> {
-
-							if (perm.contains("|")) {
-								String[] split = perm.split("\\|");
-								try {
-									user.addTimedPermission(split[0], Long.parseLong(split[1]));
-								} catch (Exception e) {
-									GroupManager.logger.warning("Timed Permission error: " + perm);
-								}
-							} else {
-								/*
-								 * add a standard permission
-								 */
-								user.addPermission(perm);
-							}
-						});
-					}
-
-					if (group != null) {
-						Group hisGroup = dataHolder.getGroup(group);
-						if (hisGroup == null) {
-							GroupManager.logger.log(Level.WARNING, String.format(Messages.getString("WorldDatHolder.WARN_NO_GROUP_STATED"), group, user.getLastName(), dataHolder.getDefaultGroup().getName(), dataHolder.getName()));
-							hisGroup = dataHolder.getDefaultGroup();
-						}
-						user.setGroup(hisGroup);
-					} else {
-						user.setGroup(dataHolder.getDefaultGroup());
-					}
-
-					// Add sub-groups.
-					if (subGroups != null) {
-						Arrays.stream(subGroups.split(",")).forEach(sub -> {
-
-							if (sub.contains("|")) {
-								String[] split = sub.split("\\|");
-								try {
-									Group subGrp = dataHolder.getGroup(split[0]);
-									user.addTimedSubGroup(subGrp, Long.parseLong(split[1]));
-								} catch (Exception e) {
-									GroupManager.logger.warning("TimedSubGroup error: " + sub);
-								}
-							} else {
-								Group subGrp = dataHolder.getGroup(sub);
-								if (subGrp != null)
-									user.addSubGroup(subGrp);
-							}
-						});
-					}
-
-					// INFO section.
-					if (infoBlob != null) {
-
-						Map<String, Object> info = new HashMap<>();
-
-						Arrays.stream(infoBlob.split(",")).forEach(node -> {
-							String[] split = node.split("\\|");
-
-							info.put(split[0], (split.length == 2) ? split[1] : new String());
-						});
-						user.setVariables(info);
-					}
-
+					loadUser(dataHolder, result);
 				}
 
 			} catch (SQLException e) {
@@ -715,6 +634,101 @@ public class CoreSQL implements DataSource {
 		});
 	}
 
+	/**
+	 * Create a User from the current row of a Users query.
+	 * 
+	 * @param dataHolder	the world container to create the User in.
+	 * @param result		a ResultSet positioned on a Users row.
+	 * @return	the new User.
+	 * @throws SQLException
+	 */
+	private User loadUser(WorldDataHolder dataHolder, ResultSet result) throws SQLException {
+
+		// UUID,LASTNAME,PRIMARYGROUP,SUBGROUPS,PERMISSIONS,INFO
+
+		String id = result.getString("UUID");
+		String lastName = result.getString("LASTNAME");
+		String group = result.getString("PRIMARYGROUP");
+		String subGroups = result.getString("SUBGROUPS");
+		String permissions = result.getString("PERMISSIONS");
+		String infoBlob = result.getString("INFO");
+
+		User user = dataHolder.createUser(id);
+		if (user == null) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_DUPLICATE_USER"), id, dataHolder.getName()));
+		}
+
+		if (lastName != null) {
+			user.setLastName(lastName);
+		}
+
+		// Add all permissions.
+		if (permissions != null) {
+			Arrays.stream(permissions.split(",")).forEach(perm -> {
+
+				if (perm.contains("|")) {
+					String[] split = perm.split("\\|");
+					try {
+						user.addTimedPermission(split[0], Long.parseLong(split[1]));
+					} catch (Exception e) {
+						GroupManager.logger.warning("Timed Permission error: " + perm);
+					}
+				} else {
+					/*
+					 * add a standard permission
+					 */
+					user.addPermission(perm);
+				}
+			});
+		}
+
+		if (group != null) {
+			Group hisGroup = dataHolder.getGroup(group);
+			if (hisGroup == null) {
+				GroupManager.logger.log(Level.WARNING, String.format(Messages.getString("WorldDatHolder.WARN_NO_GROUP_STATED"), group, user.getLastName(), dataHolder.getDefaultGroup().getName(), dataHolder.getName()));
+				hisGroup = dataHolder.getDefaultGroup();
+			}
+			user.setGroup(hisGroup);
+		} else {
+			user.setGroup(dataHolder.getDefaultGroup());
+		}
+
+		// Add sub-groups.
+		if (subGroups != null) {
+			Arrays.stream(subGroups.split(",")).forEach(sub -> {
+
+				if (sub.contains("|")) {
+					String[] split = sub.split("\\|");
+					try {
+						Group subGrp = dataHolder.getGroup(split[0]);
+						user.addTimedSubGroup(subGrp, Long.parseLong(split[1]));
+					} catch (Exception e) {
+						GroupManager.logger.warning("TimedSubGroup error: " + sub);
+					}
+				} else {
+					Group subGrp = dataHolder.getGroup(sub);
+					if (subGrp != null)
+						user.addSubGroup(subGrp);
+				}
+			});
+		}
+
+		// INFO section.
+		if (infoBlob != null) {
+
+			Map<String, Object> info = new HashMap<>();
+
+			Arrays.stream(infoBlob.split(",")).forEach(node -> {
+				String[] split = node.split("\\|");
+
+				info.put(split[0], (split.length == 2) ? split[1] : new String());
+			});
+			user.setVariables(info);
+		}
+
+		return user;
+	}
+
 	@Override
 	public void reload(WorldDataHolder dataHolder) {
 
@@ -738,7 +752,7 @@ public class CoreSQL implements DataSource {
 
 	private CompletableFuture<Void> reloadGroupsAsync(WorldDataHolder dataHolder) {
 
-		return CompletableFuture.supplyAsync(() -> {
+		return GMExecutor.getInstance().supplyAsync(() -> {
 
 			WorldDataHolder ph = null;
 
@@ -828,7 +842,7 @@ public class CoreSQL implements DataSource {
 
 	private CompletableFuture<Void> reloadUsersAsync(WorldDataHolder dataHolder) {
 
-		return CompletableFuture.supplyAsync(() -> {
+		return GMExecutor.getInstance().supplyAsync(() -> {
 
 			WorldDataHolder ph = null;
 
@@ -882,7 +896,7 @@ public class CoreSQL implements DataSource {
 		if (GroupManager.getGMConfig().getAccessType() == ACCESS_LEVEL.READ || !dataHolder.haveGroupsChanged())
 			return;
 
-		CompletableFuture.supplyAsync(() -> {
+		GMExecutor.getInstance().supplyAsync(() -> {
 
 			Long changed = null;
 
@@ -1015,7 +1029,7 @@ public class CoreSQL implements DataSource {
 		if (GroupManager.getGMConfig().getAccessType() == ACCESS_LEVEL.READ || !dataHolder.haveUsersChanged())
 			return;
 
-		CompletableFuture.supplyAsync(() -> {
+		GMExecutor.getInstance().supplyAsync(() -> {
 
 			Long changed = null;
 
@@ -1227,6 +1241,62 @@ public class CoreSQL implements DataSource {
 		return dataHolder.getUsersObject().getTimeStamp() != getDatabaseTimeStampUsers(dataHolder);
 	}
 
+	@Override
+	public boolean refreshUser(WorldDataHolder dataHolder, String uUID) {
+
+		if (!hasNewUsersData(dataHolder))
+			return false;
+
+		String tableName = (GroupManager.getGMConfig().getDatabaseGroup() + "_" + dataHolder.getName() + "_USERS").toUpperCase();
+
+		// Fetch this Users row, only if saved since our last load.
+		try (Connection conn = hikari.getConnection(); PreparedStatement query = conn.prepareStatement(String.format(this.statements.getSelectUser(), tableName))) {
+
+			query.setString(1, uUID);
+			query.setLong(2, dataHolder.getUsersObject().getTimeStamp());
+
+			ResultSet result = query.executeQuery();
+
+			if (!result.next())
+				return false;
+
+			/*
+			 * Build the User away from the live world so
+			 * no events fire while it is half loaded.
+			 */
+			User fresh = loadUser(dataHolder.detach(), result);
+			fresh.flagAsSaved();
+
+			/*
+			 * Obtain the lock so we can swap
+			 * without racing a save.
+			 */
+			plugin.getSaveLock().lock();
+
+			try {
+				User local = dataHolder.getUsers().get(uUID.toLowerCase());
+
+				// Unsaved local changes are left for the next save to resolve.
+				if (local != null && local.isChanged())
+					return false;
+
+				/*
+				 * Only this User is current so leave the time stamp
+				 * and changed flag alone, the rest of the table still needs loading.
+				 */
+				dataHolder.swapUser(fresh);
+
+			} finally {
+				plugin.getSaveLock().unlock();
+			}
+			return true;
+
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
 	/**
 	 * Helper method to retrieve a Groups table time stamp.
 	 * 
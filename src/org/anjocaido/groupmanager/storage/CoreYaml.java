@@ -5,19 +5,21 @@ package org.anjocaido.groupmanager.storage;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,9 +32,18 @@ import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
 import org.anjocaido.groupmanager.dataholder.worlds.WorldsHolder;
 import org.anjocaido.groupmanager.events.GMSystemEvent;
 import org.anjocaido.groupmanager.localization.Messages;
+import org.anjocaido.groupmanager.utils.GMExecutor;
 import org.anjocaido.groupmanager.utils.Tasks;
 import org.bukkit.World;
 import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
 import org.yaml.snakeyaml.reader.UnicodeReader;
 
 /**
@@ -43,6 +54,7 @@ public class CoreYaml implements DataSource {
 
 	private final GroupManager plugin;
 	private final File worldsFolder;
+	private final Map<File, UserShards> userShards = new ConcurrentHashMap<>();
 
 	/**
 	 * 
@@ -100,7 +112,12 @@ public class CoreYaml implements DataSource {
 
 			if (!holder.hasUsersMirror(worldNameLowered)) {
 				File usersFile = new File(defaultWorldFolder, "users.yml"); //$NON-NLS-1$
-				if (!usersFile.exists() || usersFile.length() == 0) {
+				File usersFolder = new File(defaultWorldFolder, UserShards.FOLDER);
+
+				if (GroupManager.getGMConfig().isShardedUsers()) {
+					usersFolder.mkdirs();
+
+				} else if ((!usersFile.exists() || usersFile.length() == 0) && UserShards.listFiles(usersFolder).length == 0) {
 
 					InputStream template = plugin.getResource("users.yml"); //$NON-NLS-1$
 					try {
@@ -130,7 +147,7 @@ public class CoreYaml implements DataSource {
 
 			// Setup file handles, if not mirrored
 			File groupsFile = (holder.hasGroupsMirror(worldNameLowered)) ? null : new File(thisWorldFolder, "groups.yml"); //$NON-NLS-1$
-			File usersFile = (holder.hasUsersMirror(worldNameLowered)) ? null : new File(thisWorldFolder, "users.yml"); //$NON-NLS-1$
+			File usersFile = (holder.hasUsersMirror(worldNameLowered)) ? null : getUsersSource(thisWorldFolder);
 
 			if ((groupsFile != null) && (!groupsFile.exists())) {
 				throw new IllegalArgumentException(String.format(Messages.getString("WorldsHolder.ERROR_NO_GROUPS_FILE"), worldName, groupsFile.getPath())); //$NON-NLS-1$
@@ -165,6 +182,25 @@ public class CoreYaml implements DataSource {
 				} catch (IOException e) {
 					e.printStackTrace();
 				}
+
+				File usersTarget = GroupManager.getGMConfig().isShardedUsers() ? new File(thisWorldFolder, UserShards.FOLDER) : new File(thisWorldFolder, "users.yml"); //$NON-NLS-1$
+
+				// Convert to the configured store, written in full by the next save.
+				if (!usersFile.equals(usersTarget)) {
+					GroupManager.logger.info(String.format("Converting the users of %s from %s to %s", worldName, usersFile.getName(), usersTarget.getName())); //$NON-NLS-1$
+
+					tempHolder.setUsersFile(usersTarget);
+					for (User user : tempHolder.getUserList())
+						user.flagAsChanged();
+					tempHolder.setUsersChanged(true);
+
+					// Files left from an earlier sharded store may hold Users since removed.
+					if (GroupManager.getGMConfig().isShardedUsers()) {
+						UserShards shards = new UserShards(usersTarget);
+						shards.markAllStale();
+						userShards.put(usersTarget, shards);
+					}
+				}
 			}
 
 			OverloadedWorldHolder thisWorldData = new OverloadedWorldHolder(tempHolder);
@@ -173,7 +209,7 @@ public class CoreYaml implements DataSource {
 				// Set the file TimeStamps as it will be default from the initial creation.
 				if (usersFile != null) {
 					thisWorldData.setUsersFile(tempHolder.getUsersFile());
-					thisWorldData.getUsersObject().setTimeStamp(tempHolder.getUsersFile().lastModified());
+					thisWorldData.getUsersObject().setTimeStamp(UserShards.getTimeStamp(tempHolder.getUsersFile()));
 				}
 				if (groupsFile != null) {
 					thisWorldData.setGroupsFile(tempHolder.getGroupsFile());
@@ -185,6 +221,34 @@ public class CoreYaml implements DataSource {
 		}
 	}
 
+	/**
+	 * Which of a worlds users.yml, or users folder, to read.
+	 * The one configured, unless only the other has data or its data is newer.
+	 *
+	 * @param worldFolder	the worlds data folder.
+	 * @return the users.yml or the folder.
+	 */
+	private File getUsersSource(File worldFolder) {
+
+		boolean sharded = GroupManager.getGMConfig().isShardedUsers();
+		File usersFile = new File(worldFolder, "users.yml"); //$NON-NLS-1$
+		File usersFolder = new File(worldFolder, UserShards.FOLDER);
+
+		if (UserShards.listFiles(usersFolder).length == 0)
+			return (sharded && !usersFile.exists()) ? usersFolder : usersFile;
+
+		if (!usersFile.exists())
+			return usersFolder;
+
+		long fileTime = usersFile.lastModified();
+		long folderTime = UserShards.getTimeStamp(usersFolder);
+
+		if (sharded)
+			return (folderTime >= fileTime) ? usersFolder : usersFile;
+
+		return (fileTime >= folderTime) ? usersFile : usersFolder;
+	}
+
 	@Override
 	public void loadAllSearchedWorlds() {
 
@@ -506,251 +570,377 @@ public class CoreYaml implements DataSource {
 	@Override
 	public void loadUsers(WorldDataHolder dataHolder) throws IOException {
 
-		// READ USERS FILE
 		File usersFile = dataHolder.getUsersFile();
+		List<String> misplaced = new ArrayList<>();
+		long started = System.nanoTime();
+
+		try {
+			if (usersFile.isDirectory()) {
+				loadUserShards(dataHolder, usersFile, misplaced);
+			} else {
+				loadUsers(dataHolder, usersFile);
+			}
+		} catch (IOException | RuntimeException ex) {
+			// Never leave part of a file loaded, as it would be saved over the whole.
+			dataHolder.resetUsers();
+			dataHolder.removeUsersChangedFlag();
+			throw ex;
+		}
 
-		org.yaml.snakeyaml.Yaml yamlUsers = new org.yaml.snakeyaml.Yaml();
-		Map<String, Object> usersRootDataNode;
+		double seconds = (System.nanoTime() - started) / 1000000000.0;
+		int count = dataHolder.getUsers().size();
 
-		if (!dataHolder.getUsersFile().exists()) {
-			throw new IllegalArgumentException(Messages.getString("WorldDatHolder.ERROR_NO_USERS_FILE") + System.lineSeparator() + usersFile.getPath());
+		GroupManager.logger.info(String.format("Loaded %d users for %s in %.2fs (%.0f users/sec)", count, dataHolder.getName(), seconds, count / Math.max(seconds, 0.001))); //$NON-NLS-1$
+
+		dataHolder.removeUsersChangedFlag();
+
+		// Users found in the wrong file are moved by the next save.
+		if (!misplaced.isEmpty()) {
+			for (String key : misplaced)
+				dataHolder.getUsers().get(key).flagAsChanged();
+			dataHolder.setUsersChanged(true);
 		}
-		try (FileInputStream usersInputStream = new FileInputStream(usersFile)) {
-			usersRootDataNode = yamlUsers.load(new UnicodeReader(usersInputStream));
-			if (usersRootDataNode == null) {
-				throw new NullPointerException();
+
+		// Update the LastModified time.
+		dataHolder.setUsersFile(usersFile);
+		dataHolder.getUsersObject().setTimeStamp(UserShards.getTimeStamp(usersFile));
+	}
+
+	/**
+	 * Read all Users from a folder of users files.
+	 *
+	 * Files are parsed in parallel on our IO threads, a few ahead
+	 * of the one being loaded. Users are created here, in file order.
+	 *
+	 * @param dataHolder	the world to add the Users to.
+	 * @param folder		the folder to read.
+	 * @param misplaced		to add the keys of any Users found in the wrong file, or in two files.
+	 */
+	private void loadUserShards(WorldDataHolder dataHolder, File folder, List<String> misplaced) {
+
+		UserShards shards = new UserShards(folder);
+		File[] files = UserShards.listFiles(folder);
+		Set<String> seen = new HashSet<>();
+		List<CompletableFuture<List<Map.Entry<Object, Object>>>> reads = new ArrayList<>();
+		int ahead = GroupManager.getGMConfig().getIOThreads() * 2;
+
+		for (int i = 0; i < files.length; i++) {
+
+			while (reads.size() < Math.min(files.length, i + ahead + 1)) {
+				File file = files[reads.size()];
+				reads.add(GMExecutor.getInstance().supplyAsync(() -> readUsers(file)));
 			}
+
+			List<Map.Entry<Object, Object>> entries;
+			try {
+				entries = reads.get(i).join();
+			} catch (CompletionException ex) {
+				throw (ex.getCause() instanceof RuntimeException) ? (RuntimeException) ex.getCause() : ex;
+			}
+			// Done with, so it can be collected.
+			reads.set(i, null);
+
+			String shard = UserShards.getShard(files[i]);
+			Set<String> keys = new HashSet<>();
+
+			for (Map.Entry<Object, Object> entry : entries)
+				loadUser(dataHolder, files[i], entry.getKey(), entry.getValue(), keys);
+
+			for (String key : keys) {
+				// Misplaced, or a duplicate of one in an earlier file.
+				if (!shard.equals(UserShards.getShard(key)) || !seen.add(key))
+					misplaced.add(key);
+			}
+			shards.setSaved(shard, keys);
+		}
+		// Only replace what we know of the files once all have loaded.
+		userShards.put(folder, shards);
+	}
+
+	/**
+	 * Read all Users from a single users file,
+	 * creating each as soon as it is read.
+	 *
+	 * @param dataHolder	the world to add the Users to.
+	 * @param usersFile		the file to read.
+	 * @return the lower case keys of the Users read.
+	 * @throws IOException
+	 */
+	private Set<String> loadUsers(WorldDataHolder dataHolder, File usersFile) throws IOException {
+
+		Set<String> keys = new HashSet<>();
+
+		if (!usersFile.exists()) {
+			throw new IllegalArgumentException(Messages.getString("WorldDatHolder.ERROR_NO_USERS_FILE") + System.lineSeparator() + usersFile.getPath());
+		}
+
+		try (UserFileReader reader = openUsers(usersFile)) {
+			Map.Entry<Object, Object> entry;
+
+			while ((entry = nextUser(reader, usersFile)) != null)
+				loadUser(dataHolder, usersFile, entry.getKey(), entry.getValue(), keys);
+		}
+		return keys;
+	}
+
+	/**
+	 * Read every entry in a users file, without creating any Users.
+	 * Safe to call from any thread.
+	 *
+	 * @param usersFile	the file to read.
+	 * @return the key and data of each User, in file order.
+	 */
+	private List<Map.Entry<Object, Object>> readUsers(File usersFile) {
+
+		List<Map.Entry<Object, Object>> entries = new ArrayList<>();
+
+		try (UserFileReader reader = openUsers(usersFile)) {
+			Map.Entry<Object, Object> entry;
+
+			while ((entry = nextUser(reader, usersFile)) != null)
+				entries.add(entry);
+		}
+		return entries;
+	}
+
+	private UserFileReader openUsers(File usersFile) {
+
+		try {
+			return new UserFileReader(usersFile);
 		} catch (Exception ex) {
 			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FILE"), usersFile.getPath()), ex);
 		}
+	}
 
-		// PROCESS USERS FILE
-
-		Map<?, ?> allUsersNode;
+	private Map.Entry<Object, Object> nextUser(UserFileReader reader, File usersFile) {
 
-		/*
-		 * Fetch all child nodes under the 'users' entry.
-		 */
 		try {
-			allUsersNode = (Map<?, ?>) usersRootDataNode.get("users");
+			return reader.next();
 		} catch (Exception ex) {
 			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FILE"), usersFile.getPath()), ex);
 		}
+	}
 
-		// Load users if the file is NOT empty
+	/**
+	 * Create one User from its entry in a users file.
+	 *
+	 * @param dataHolder	the world to add the User to.
+	 * @param usersFile		the file it was read from.
+	 * @param node			the key of the entry, normally the UUID.
+	 * @param data			the Users data.
+	 * @param keys			lower case keys read from this file so far, to add to.
+	 */
+	private void loadUser(WorldDataHolder dataHolder, File usersFile, Object node, Object data, Set<String> keys) {
 
-		if (allUsersNode != null) {
+		String usersKey;
 
-			Iterator<?> usersItr = allUsersNode.keySet().iterator();
-			String usersKey;
-			Object node;
-			Integer userCount = 0;
+		try {
+			// Attempt to fetch the next user name.
+			if (node instanceof Integer)
+				usersKey = Integer.toString((Integer) node);
+			else
+				usersKey = node.toString();
 
-			while (usersItr.hasNext()) {
-				try {
-					userCount++;
-					// Attempt to fetch the next user name.
-					node = usersItr.next();
-					if (node instanceof Integer)
-						usersKey = Integer.toString((Integer) node);
-					else
-						usersKey = node.toString();
+		} catch (Exception ex) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_NODE_USER"), keys.size() + 1, usersFile.getPath()), ex);
+		}
 
-				} catch (Exception ex) {
-					throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_NODE_USER"), userCount, usersFile.getPath()), ex);
-				}
+		Map<?, ?> thisUserNode;
+		try {
+			thisUserNode = (Map<?, ?>) data;
+		} catch (Exception ex) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_FOR_USER"), usersKey, usersFile.getPath()));
+		}
 
-				Map<?, ?> thisUserNode;
-				try {
-					thisUserNode = (Map<?, ?>) allUsersNode.get(node);
-				} catch (Exception ex) {
-					throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_FOR_USER"), usersKey, usersFile.getPath()));
-				}
+		// Yaml.load kept the last of any repeated key, so we do the same.
+		if (!keys.add(usersKey.toLowerCase())) {
+			GroupManager.logger.warning(String.format("Duplicate user %s in %s, using the last entry", usersKey, usersFile.getPath())); //$NON-NLS-1$
+			dataHolder.removeUser(usersKey);
 
-				User thisUser = dataHolder.createUser(usersKey);
-				if (thisUser == null) {
-					throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_DUPLICATE_USER"), usersKey, usersFile.getPath()));
-				}
+		} else if (dataHolder.isUserDeclared(usersKey)) {
+			// Also in an earlier users file, which only happens when sharded.
+			GroupManager.logger.warning(String.format("Duplicate user %s in %s and an earlier users file, using the last entry", usersKey, usersFile.getPath())); //$NON-NLS-1$
+			dataHolder.removeUser(usersKey);
+		}
 
-				/*
-				 * LASTNAME NODES
-				 */
-				Object nodeData;
-				try {
-					nodeData = thisUserNode.get("lastname");
+		User thisUser = dataHolder.createUser(usersKey);
+		if (thisUser == null) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_DUPLICATE_USER"), usersKey, usersFile.getPath()));
+		}
 
-				} catch (Exception ex) {
-					throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_IN_USER"), "lastname", usersKey, usersFile.getPath()));
-				}
+		/*
+		 * LASTNAME NODES
+		 */
+		Object nodeData;
+		try {
+			nodeData = thisUserNode.get("lastname");
 
-				if ((nodeData instanceof String)) {
-					thisUser.setLastName((String) nodeData);
-				}
+		} catch (Exception ex) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_IN_USER"), "lastname", usersKey, usersFile.getPath()));
+		}
 
-				/*
-				 * USER PERMISSIONS NODES
-				 */
-				try {
-					nodeData = thisUserNode.get("permissions");
-				} catch (Exception ex) {
-					throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_FOR_USER"), "permissions", usersKey, usersFile.getPath()));
-				}
+		if ((nodeData instanceof String)) {
+			thisUser.setLastName((String) nodeData);
+		}
 
-				if (nodeData != null) {
-					try {
-						if (nodeData instanceof List) {
-							for (Object o : ((List<?>) nodeData)) {
-								/*
-								 * Only add this permission if it's not empty
-								 */
-								if (!o.toString().isEmpty()) {
-									/*
-									 * check for a timed permission
-									 */
-									if (o.toString().contains("|")) {
-										String[] split = o.toString().split("\\|");
-										try {
-											thisUser.addTimedPermission(split[0], Long.parseLong(split[1]));
-										} catch (Exception e) {
-											GroupManager.logger.log(Level.WARNING, "TimedPermission error: " + o);
-										}
-									} else {
-										thisUser.addPermission(o.toString());
-									}
-								}
-							}
-						} else if (nodeData instanceof String) {
+		/*
+		 * USER PERMISSIONS NODES
+		 */
+		try {
+			nodeData = thisUserNode.get("permissions");
+		} catch (Exception ex) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_FOR_USER"), "permissions", usersKey, usersFile.getPath()));
+		}
 
+		if (nodeData != null) {
+			try {
+				if (nodeData instanceof List) {
+					for (Object o : ((List<?>) nodeData)) {
+						/*
+						 * Only add this permission if it's not empty
+						 */
+						if (!o.toString().isEmpty()) {
 							/*
-							 * Only add this permission if it's not empty
+							 * check for a timed permission
 							 */
-							if (!nodeData.toString().isEmpty()) {
-								/*
-								 * check for a timed permission
-								 */
-								if (nodeData.toString().contains("|")) {
-									String[] split = nodeData.toString().split("\\|");
-									try {
-										thisUser.addTimedPermission(split[0], Long.parseLong(split[1]));
-									} catch (Exception e) {
-										GroupManager.logger.log(Level.WARNING, "TimedPermission error: " + nodeData);
-									}
-								} else {
-									thisUser.addPermission(nodeData.toString());
+							if (o.toString().contains("|")) {
+								String[] split = o.toString().split("\\|");
+								try {
+									thisUser.addTimedPermission(split[0], Long.parseLong(split[1]));
+								} catch (Exception e) {
+									GroupManager.logger.log(Level.WARNING, "TimedPermission error: " + o);
 								}
+							} else {
+								thisUser.addPermission(o.toString());
 							}
 						}
-					} catch (NullPointerException ignored) {
-					} // Safe to ignore null.
-				}
+					}
+				} else if (nodeData instanceof String) {
 
-				/*
-				 * USER INFO NODE
-				 */
-				try {
-					nodeData = thisUserNode.get("info");
-				} catch (Exception ex) {
-					throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_IN_USER"), "info", usersKey, usersFile.getPath()));
+					/*
+					 * Only add this permission if it's not empty
+					 */
+					if (!nodeData.toString().isEmpty()) {
+						/*
+						 * check for a timed permission
+						 */
+						if (nodeData.toString().contains("|")) {
+							String[] split = nodeData.toString().split("\\|");
+							try {
+								thisUser.addTimedPermission(split[0], Long.parseLong(split[1]));
+							} catch (Exception e) {
+								GroupManager.logger.log(Level.WARNING, "TimedPermission error: " + nodeData);
+							}
+						} else {
+							thisUser.addPermission(nodeData.toString());
+						}
+					}
 				}
+			} catch (NullPointerException ignored) {
+			} // Safe to ignore null.
+		}
 
-				if (nodeData != null) {
-					if (nodeData instanceof Map) {
-						thisUser.setVariables((Map<?, ?>) nodeData);
+		/*
+		 * USER INFO NODE
+		 */
+		try {
+			nodeData = thisUserNode.get("info");
+		} catch (Exception ex) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_IN_USER"), "info", usersKey, usersFile.getPath()));
+		}
 
-					} else
-						throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_UNKNOWN_ENTRY_USER"), "info", thisUser.getLastName(), usersFile.getPath()));
-				}
-				// END INFO NODE
+		if (nodeData != null) {
+			if (nodeData instanceof Map) {
+				thisUser.setVariables((Map<?, ?>) nodeData);
 
-				/*
-				 * PRIMARY GROUP
-				 */
-				try {
-					nodeData = thisUserNode.get("group");
-				} catch (Exception ex) {
-					throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_IN_USER"), "group", usersKey, usersFile.getPath()));
-				}
+			} else
+				throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_UNKNOWN_ENTRY_USER"), "info", thisUser.getLastName(), usersFile.getPath()));
+		}
+		// END INFO NODE
 
-				if (nodeData != null) {
-					Group hisGroup = dataHolder.getGroup(nodeData.toString());
-					if (hisGroup == null) {
-						GroupManager.logger.log(Level.WARNING, String.format(Messages.getString("WorldDatHolder.WARN_NO_GROUP_STATED"), thisUserNode.get("group").toString(), thisUser.getLastName(), dataHolder.getDefaultGroup().getName(), usersFile.getPath()));
-						hisGroup = dataHolder.getDefaultGroup();
-					}
-					thisUser.setGroup(hisGroup);
-				} else {
-					thisUser.setGroup(dataHolder.getDefaultGroup());
-				}
+		/*
+		 * PRIMARY GROUP
+		 */
+		try {
+			nodeData = thisUserNode.get("group");
+		} catch (Exception ex) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_IN_USER"), "group", usersKey, usersFile.getPath()));
+		}
 
-				/*
-				 * SUBGROUPS NODES
-				 */
-				try {
-					nodeData = thisUserNode.get("subgroups");
-				} catch (Exception ex) {
-					throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_IN_USER"), "subgroups", usersKey, usersFile.getPath()));
-				}
+		if (nodeData != null) {
+			Group hisGroup = dataHolder.getGroup(nodeData.toString());
+			if (hisGroup == null) {
+				GroupManager.logger.log(Level.WARNING, String.format(Messages.getString("WorldDatHolder.WARN_NO_GROUP_STATED"), thisUserNode.get("group").toString(), thisUser.getLastName(), dataHolder.getDefaultGroup().getName(), usersFile.getPath()));
+				hisGroup = dataHolder.getDefaultGroup();
+			}
+			thisUser.setGroup(hisGroup);
+		} else {
+			thisUser.setGroup(dataHolder.getDefaultGroup());
+		}
 
-				/*
-				 * If no subgroups node is found, or it's empty do nothing.
-				 */
-				if (nodeData != null) {
+		/*
+		 * SUBGROUPS NODES
+		 */
+		try {
+			nodeData = thisUserNode.get("subgroups");
+		} catch (Exception ex) {
+			throw new IllegalArgumentException(String.format(Messages.getString("WorldDatHolder.ERROR_INVALID_FORMAT_IN_USER"), "subgroups", usersKey, usersFile.getPath()));
+		}
 
-					if (nodeData instanceof List) {
-						for (Object o : ((List<?>) nodeData)) {
-							/*
-							 * Only add this subgroup if it's not empty
-							 */
-							if (!o.toString().isEmpty()) {
-								/*
-								 * check for a timed subgroup
-								 */
-								if (o.toString().contains("|")) {
-									String[] split = o.toString().split("\\|");
-									try {
-										Group subGrp = dataHolder.getGroup(split[0]);
-										thisUser.addTimedSubGroup(subGrp, Long.parseLong(split[1]));
-									} catch (Exception e) {
-										GroupManager.logger.warning("TimedSubGroup error: " + o);
-									}
-								} else {
-									Group subGrp = dataHolder.getGroup(o.toString());
-									if (subGrp != null)
-										thisUser.addSubGroup(subGrp);
-								}
-							}
-						}
-					} else if (nodeData instanceof String) {
+		/*
+		 * If no subgroups node is found, or it's empty do nothing.
+		 */
+		if (nodeData != null) {
 
+			if (nodeData instanceof List) {
+				for (Object o : ((List<?>) nodeData)) {
+					/*
+					 * Only add this subgroup if it's not empty
+					 */
+					if (!o.toString().isEmpty()) {
 						/*
-						 * Only add this subgroup if it's not empty
+						 * check for a timed subgroup
 						 */
-						if (!nodeData.toString().isEmpty()) {
-							/*
-							 * check for a timed subgroup
-							 */
-							if (nodeData.toString().contains("|")) {
-								String[] split = nodeData.toString().split("\\|");
+						if (o.toString().contains("|")) {
+							String[] split = o.toString().split("\\|");
+							try {
 								Group subGrp = dataHolder.getGroup(split[0]);
-								try {
-									thisUser.addTimedSubGroup(subGrp, Long.parseLong(split[1]));
-								} catch (Exception e) {
-									GroupManager.logger.log(Level.WARNING, "TimedSubGroup error: " + nodeData);
-								}
-							} else {
-								Group subGrp = dataHolder.getGroup(nodeData.toString());
-								if (subGrp != null)
-									thisUser.addSubGroup(subGrp);
+								thisUser.addTimedSubGroup(subGrp, Long.parseLong(split[1]));
+							} catch (Exception e) {
+								GroupManager.logger.warning("TimedSubGroup error: " + o);
 							}
+						} else {
+							Group subGrp = dataHolder.getGroup(o.toString());
+							if (subGrp != null)
+								thisUser.addSubGroup(subGrp);
+						}
+					}
+				}
+			} else if (nodeData instanceof String) {
+
+				/*
+				 * Only add this subgroup if it's not empty
+				 */
+				if (!nodeData.toString().isEmpty()) {
+					/*
+					 * check for a timed subgroup
+					 */
+					if (nodeData.toString().contains("|")) {
+						String[] split = nodeData.toString().split("\\|");
+						Group subGrp = dataHolder.getGroup(split[0]);
+						try {
+							thisUser.addTimedSubGroup(subGrp, Long.parseLong(split[1]));
+						} catch (Exception e) {
+							GroupManager.logger.log(Level.WARNING, "TimedSubGroup error: " + nodeData);
 						}
+					} else {
+						Group subGrp = dataHolder.getGroup(nodeData.toString());
+						if (subGrp != null)
+							thisUser.addSubGroup(subGrp);
 					}
 				}
 			}
 		}
-		dataHolder.removeUsersChangedFlag();
-		// Update the LastModified time.
-		dataHolder.setUsersFile(usersFile);
-		dataHolder.getUsersObject().setTimeStamp(usersFile.lastModified());
 	}
 
 	@Override
@@ -820,7 +1010,7 @@ public class CoreYaml implements DataSource {
 				tempUser.clone(dataHolder);
 			}
 			dataHolder.removeUsersChangedFlag();
-			dataHolder.getUsersObject().setTimeStamp(dataHolder.getUsersFile().lastModified());
+			dataHolder.getUsersObject().setTimeStamp(UserShards.getTimeStamp(dataHolder.getUsersFile()));
 
 		} catch (Exception ex) {
 			Logger.getLogger(WorldDataHolder.class.getName()).log(Level.WARNING, null, ex);
@@ -867,24 +1057,27 @@ public class CoreYaml implements DataSource {
 			opt.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
 			final org.yaml.snakeyaml.Yaml yaml = new org.yaml.snakeyaml.Yaml(opt);
 			try {
-				OutputStreamWriter out = new OutputStreamWriter(new FileOutputStream(dataHolder.getGroupsFile()), StandardCharsets.UTF_8);
-
-				String newLine = System.getProperty("line.separator");
-
-				out.write("# Group inheritance" + newLine);
-				out.write("#" + newLine);
-				out.write("# Any inherited groups prefixed with a g: are global groups" + newLine);
-				out.write("# and are inherited from the GlobalGroups.yml." + newLine);
-				out.write("#" + newLine);
-				out.write("# Groups without the g: prefix are groups local to this world" + newLine);
-				out.write("# and are defined in the this groups.yml file." + newLine);
-				out.write("#" + newLine);
-				out.write("# Local group inheritances define your promotion tree when using 'manpromote/mandemote'" + newLine);
-				out.write(newLine);
-
-				yaml.dump(root, out);
-				out.close();
-			} catch (Exception ignored) {
+				Tasks.writeAtomic(dataHolder.getGroupsFile(), out -> {
+
+					String newLine = System.getProperty("line.separator");
+
+					out.write("# Group inheritance" + newLine);
+					out.write("#" + newLine);
+					out.write("# Any inherited groups prefixed with a g: are global groups" + newLine);
+					out.write("# and are inherited from the GlobalGroups.yml." + newLine);
+					out.write("#" + newLine);
+					out.write("# Groups without the g: prefix are groups local to this world" + newLine);
+					out.write("# and are defined in the this groups.yml file." + newLine);
+					out.write("#" + newLine);
+					out.write("# Local group inheritances define your promotion tree when using 'manpromote/mandemote'" + newLine);
+					out.write(newLine);
+
+					yaml.dump(root, out);
+				});
+			} catch (IOException ex) {
+				// Left flagged as changed, so the next save tries again.
+				GroupManager.logger.log(Level.SEVERE, "Failed to save " + dataHolder.getGroupsFile().getPath(), ex); //$NON-NLS-1$
+				return;
 			}
 
 			// Update the LastModified time.
@@ -900,68 +1093,172 @@ public class CoreYaml implements DataSource {
 	@Override
 	public void saveUsers(WorldDataHolder dataHolder) {
 
-		Map<String, Object> root = new HashMap<>();
-		LinkedHashMap<String, Object> usersMap = new LinkedHashMap<>();
+		try {
+			if (dataHolder.getUsersFile().isDirectory()) {
+				saveUserShards(dataHolder);
+			} else {
+				// A sorted list of users.
+				writeUsers(dataHolder, dataHolder.getUsers().values(), dataHolder.getUsersFile());
+			}
+		} catch (IOException ex) {
+			// Left flagged as changed, so the next save tries again.
+			GroupManager.logger.log(Level.SEVERE, "Failed to save the users of " + dataHolder.getName(), ex); //$NON-NLS-1$
+			return;
+		}
 
-		root.put("users", usersMap);
+		// Update the LastModified time.
+		dataHolder.setUsersFile(dataHolder.getUsersFile());
+		dataHolder.getUsersObject().setTimeStamp(UserShards.getTimeStamp(dataHolder.getUsersFile()));
+		dataHolder.removeUsersChangedFlag();
 
-		// A sorted list of users.
-		for (String userKey : dataHolder.getUsers().keySet()) {
-			User user = dataHolder.getUsers().get(userKey);
-			if ((user.getGroup() == null || user.getGroup().equals(dataHolder.getDefaultGroup())) && user.getPermissionList().isEmpty() && user.getVariables().isEmpty() && user.isSubGroupsEmpty()) {
-				continue;
-			}
+		if (GroupManager.isLoaded())
+			GroupManager.getGMEventHandler().callEvent(GMSystemEvent.Action.SAVED);
+	}
 
-			LinkedHashMap<String, Object> aUserMap = new LinkedHashMap<>();
-			usersMap.put(user.getUUID(), aUserMap);
+	/**
+	 * Rewrite only the users files holding changed, added or removed Users.
+	 * Files left with no Users are deleted.
+	 *
+	 * @param dataHolder	the world to save.
+	 * @throws IOException if any file could not be written.
+	 */
+	private void saveUserShards(WorldDataHolder dataHolder) throws IOException {
 
-			if (!user.getUUID().equalsIgnoreCase(user.getLastName())) {
-				aUserMap.put("lastname", user.getLastName());
-			}
+		UserShards shards = userShards.computeIfAbsent(dataHolder.getUsersFile(), UserShards::new);
+		Set<String> dirty = shards.getDirty(dataHolder);
 
-			// GROUP NODE
-			if (user.getGroup() == null) {
-				aUserMap.put("group", dataHolder.getDefaultGroup().getName());
-			} else {
-				aUserMap.put("group", user.getGroup().getName());
-			}
+		if (dirty.isEmpty())
+			return;
+
+		Map<String, List<User>> users = new HashMap<>();
+
+		for (String shard : dirty)
+			users.put(shard, new ArrayList<>());
+
+		for (User user : dataHolder.getUsers().values()) {
+			List<User> list = users.get(UserShards.getShard(user.getUUID().toLowerCase()));
+
+			if (list != null && !isDefaultUser(dataHolder, user))
+				list.add(user);
+		}
+
+		for (Map.Entry<String, List<User>> entry : users.entrySet()) {
+			File file = shards.getFile(entry.getKey());
+			Set<String> keys = new HashSet<>();
+
+			for (User user : entry.getValue())
+				keys.add(user.getUUID().toLowerCase());
+
+			if (keys.isEmpty())
+				Files.deleteIfExists(file.toPath());
+			else
+				writeUsers(dataHolder, entry.getValue(), file);
+
+			shards.setSaved(entry.getKey(), keys);
+		}
+		GroupManager.logger.fine(String.format("Saved %d users files for %s", dirty.size(), dataHolder.getName())); //$NON-NLS-1$
+	}
+
+	/**
+	 * A User with nothing but the default group has nothing to save.
+	 */
+	private boolean isDefaultUser(WorldDataHolder dataHolder, User user) {
 
-			// SUBGROUPS NODE
-			aUserMap.put("subgroups", user.getSaveSubGroupsList());
+		return (user.getGroup() == null || user.getGroup().equals(dataHolder.getDefaultGroup())) && user.getPermissionList().isEmpty() && user.getVariables().isEmpty() && user.isSubGroupsEmpty();
+	}
+
+	/**
+	 * Write Users to a file, in the users.yml layout.
+	 *
+	 * Streamed one User at a time, so only a single
+	 * User is ever held as YAML in memory.
+	 *
+	 * @param dataHolder	the world the Users belong to.
+	 * @param users			the Users to write, in order.
+	 * @param file			the file to replace.
+	 * @throws IOException
+	 */
+	private void writeUsers(WorldDataHolder dataHolder, Collection<User> users, File file) throws IOException {
+
+		DumperOptions opt = new DumperOptions();
+		opt.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+		final org.yaml.snakeyaml.Yaml yaml = new org.yaml.snakeyaml.Yaml(opt);
 
-			// PERMISSIONS NODE
-			aUserMap.put("permissions", user.getSavePermissionList());
+		Tasks.writeAtomic(file, out -> {
 
-			// USER INFO NODE - BETA
-			if (user.getVariables().getSize() > 0) {
-				Map<String, Object> infoMap = new HashMap<>();
-				aUserMap.put("info", infoMap);
-				for (String infoKey : user.getVariables().getVarKeyList()) {
-					infoMap.put(infoKey, user.getVariables().getVarObject(infoKey));
+			Emitter emitter = new Emitter(out, opt);
+
+			emitter.emit(new StreamStartEvent(null, null));
+			emitter.emit(new DocumentStartEvent(null, null, false, null, null));
+			emitter.emit(new MappingStartEvent(null, null, true, null, null, DumperOptions.FlowStyle.BLOCK));
+
+			emit(emitter, yaml, "users");
+			emitter.emit(new MappingStartEvent(null, null, true, null, null, DumperOptions.FlowStyle.BLOCK));
+
+			for (User user : users) {
+				if (isDefaultUser(dataHolder, user)) {
+					continue;
 				}
+				emit(emitter, yaml, user.getUUID());
+				emit(emitter, yaml, getUserNode(dataHolder, user));
 			}
-			// END USER INFO NODE - BETA
+
+			emitter.emit(new MappingEndEvent(null, null));
+			emitter.emit(new MappingEndEvent(null, null));
+			emitter.emit(new DocumentEndEvent(null, null, false));
+			emitter.emit(new StreamEndEvent(null, null));
+		});
+	}
+
+	/**
+	 * The data saved for a User.
+	 */
+	private Map<String, Object> getUserNode(WorldDataHolder dataHolder, User user) {
+
+		LinkedHashMap<String, Object> aUserMap = new LinkedHashMap<>();
+
+		if (!user.getUUID().equalsIgnoreCase(user.getLastName())) {
+			aUserMap.put("lastname", user.getLastName());
 		}
 
-		if (!root.isEmpty()) {
-			DumperOptions opt = new DumperOptions();
-			opt.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-			final org.yaml.snakeyaml.Yaml yaml = new org.yaml.snakeyaml.Yaml(opt);
-			try {
-				OutputStreamWriter out = new OutputStreamWriter(new FileOutputStream(dataHolder.getUsersFile()), StandardCharsets.UTF_8);
-				yaml.dump(root, out);
-				out.close();
-			} catch (Exception ignored) {
-			}
+		// GROUP NODE
+		if (user.getGroup() == null) {
+			aUserMap.put("group", dataHolder.getDefaultGroup().getName());
+		} else {
+			aUserMap.put("group", user.getGroup().getName());
+		}
 
-			// Update the LastModified time.
-			dataHolder.setUsersFile(dataHolder.getUsersFile());
-			dataHolder.getUsersObject().setTimeStamp(dataHolder.getUsersFile().lastModified());
-			dataHolder.removeUsersChangedFlag();
+		// SUBGROUPS NODE
+		aUserMap.put("subgroups", user.getSaveSubGroupsList());
+
+		// PERMISSIONS NODE
+		aUserMap.put("permissions", user.getSavePermissionList());
+
+		// USER INFO NODE - BETA
+		if (user.getVariables().getSize() > 0) {
+			Map<String, Object> infoMap = new HashMap<>();
+			aUserMap.put("info", infoMap);
+			for (String infoKey : user.getVariables().getVarKeyList()) {
+				infoMap.put(infoKey, user.getVariables().getVarObject(infoKey));
+			}
 		}
+		// END USER INFO NODE - BETA
 
-		if (GroupManager.isLoaded())
-			GroupManager.getGMEventHandler().callEvent(GMSystemEvent.Action.SAVED);
+		return aUserMap;
+	}
+
+	/**
+	 * Emit one value within a document, represented exactly as Yaml.dump would.
+	 */
+	private static void emit(Emitter emitter, org.yaml.snakeyaml.Yaml yaml, Object value) throws IOException {
+
+		for (Event event : yaml.serialize(yaml.represent(value))) {
+			// Drop the stream and document each value is serialized in.
+			if (event instanceof StreamStartEvent || event instanceof StreamEndEvent || event instanceof DocumentStartEvent || event instanceof DocumentEndEvent)
+				continue;
+
+			emitter.emit(event);
+		}
 	}
 
 	@Override
@@ -979,7 +1276,18 @@ public class CoreYaml implements DataSource {
 	@Override
 	public boolean hasNewUsersData(WorldDataHolder dataHolder) {
 
-		return dataHolder.getUsersObject().getTimeStamp() < dataHolder.getUsersFile().lastModified();
+		return dataHolder.getUsersObject().getTimeStamp() < UserShards.getTimeStamp(dataHolder.getUsersFile());
+	}
+
+	@Override
+	public boolean refreshUser(WorldDataHolder dataHolder, String uUID) {
+
+		/*
+		 * A single User can't be read from a YAML file and reloading
+		 * the whole file is too much for a login, so newer
+		 * files are left for the scheduled refresh to load.
+		 */
+		return false;
 	}
 
 	@Override
@@ -1015,7 +1323,18 @@ public class CoreYaml implements DataSource {
 				break;
 
 			case USERS:
-				Tasks.copy(world.getUsersFile(), backupFile);
+				if (world.getUsersFile().isDirectory()) {
+					// Only the files the save is about to replace.
+					UserShards shards = userShards.computeIfAbsent(world.getUsersFile(), UserShards::new);
+
+					for (String shard : shards.getDirty(world)) {
+						File shardFile = shards.getFile(shard);
+						if (shardFile.exists())
+							Tasks.copy(shardFile, new File(plugin.getBackupFolder(), prefix + shard + "_" + Tasks.getDateString() + ".yml")); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+				} else {
+					Tasks.copy(world.getUsersFile(), backupFile);
+				}
 				break;
 			}
 
@@ -1171,8 +1490,11 @@ public class CoreYaml implements DataSource {
 					final org.yaml.snakeyaml.Yaml yaml = new org.yaml.snakeyaml.Yaml(opt);
 
 					try {
-						yaml.dump(root, new OutputStreamWriter(new FileOutputStream(gg.getGlobalGroupsFile()), StandardCharsets.UTF_8)); //$NON-NLS-1$
-					} catch (FileNotFoundException ignored) {
+						Tasks.writeAtomic(gg.getGlobalGroupsFile(), out -> yaml.dump(root, out));
+					} catch (IOException ex) {
+						// Left flagged as changed, so the next save tries again.
+						GroupManager.logger.log(Level.SEVERE, "Failed to save " + gg.getGlobalGroupsFile().getPath(), ex); //$NON-NLS-1$
+						return;
 					}
 				}
 
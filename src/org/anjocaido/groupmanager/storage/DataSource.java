@@ -126,6 +126,21 @@ public interface DataSource {
 	 */
 	boolean hasNewUsersData(WorldDataHolder dataHolder);
 
+	/**
+	 * Bring a single User up to date with the dataSource,
+	 * without saving or reloading anything else.
+	 * 
+	 * May be called from many threads at once. The User must be
+	 * built detached and swapped in, without altering the loaded state.
+	 * Sources which can't read a single User return false and
+	 * leave newer data to the scheduled refresh.
+	 * 
+	 * @param dataHolder	the world container holding the User.
+	 * @param uUID			the UUID of the User.
+	 * @return				true if newer data was loaded.
+	 */
+	boolean refreshUser(WorldDataHolder dataHolder, String uUID);
+
 	/**
 	 * Backup old data.
 	 * 
@@ -0,0 +1,260 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Reads a users file one User at a time, from SnakeYAML's parse events,
+ * rather than loading the whole document before any User is created.
+ *
+ * Each Users events are composed into nodes as the Composer would,
+ * then built by a SafeConstructor, so their data is exactly what
+ * Yaml.load would have built.
+ *
+ * @author ElgarL
+ */
+final class UserFileReader implements Closeable {
+
+	private final Reader reader;
+	private final Iterator<Event> events;
+	private final Resolver resolver = new Resolver();
+	private final Builder builder = new Builder();
+	private final Map<String, Node> anchors = new HashMap<>();
+
+	private boolean reading = false;
+
+	/**
+	 * Open a users file, ready to read its first User.
+	 *
+	 * @param usersFile	the file to read.
+	 * @throws IOException if it can't be opened.
+	 * @throws YAMLException if it is not a users file.
+	 */
+	UserFileReader(File usersFile) throws IOException {
+
+		this.reader = new UnicodeReader(new FileInputStream(usersFile));
+		this.events = new Yaml().parse(reader).iterator();
+
+		try {
+			open();
+		} catch (RuntimeException ex) {
+			close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Move to the start of the 'users' mapping.
+	 */
+	private void open() {
+
+		if (!(nextEvent() instanceof StreamStartEvent) || !(nextEvent() instanceof DocumentStartEvent))
+			throw new YAMLException("Empty users file"); //$NON-NLS-1$
+
+		if (!(nextEvent() instanceof MappingStartEvent))
+			throw new YAMLException("Expected a mapping"); //$NON-NLS-1$
+
+		for (Event event = nextEvent(); !(event instanceof MappingEndEvent); event = nextEvent()) {
+
+			if ("users".equals(builder.build(compose(event)))) { //$NON-NLS-1$
+				event = nextEvent();
+
+				if (event instanceof MappingStartEvent) {
+					reading = true;
+					return;
+				}
+				// An empty users node.
+				if (builder.build(compose(event)) == null)
+					return;
+
+				throw new YAMLException("Expected a mapping of users"); //$NON-NLS-1$
+			}
+			// Not ours, so skip its value.
+			compose(nextEvent());
+		}
+	}
+
+	/**
+	 * Read the next User.
+	 *
+	 * @return its key and data, or null once all are read.
+	 * @throws YAMLException if the file is malformed.
+	 */
+	Map.Entry<Object, Object> next() {
+
+		if (!reading)
+			return null;
+
+		Event event = nextEvent();
+
+		if (event instanceof MappingEndEvent) {
+			reading = false;
+			return null;
+		}
+
+		Object key = builder.build(compose(event));
+
+		return new AbstractMap.SimpleImmutableEntry<>(key, builder.build(compose(nextEvent())));
+	}
+
+	@Override
+	public void close() {
+
+		try {
+			reader.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	private Event nextEvent() {
+
+		if (!events.hasNext())
+			throw new YAMLException("Unexpected end of file"); //$NON-NLS-1$
+
+		return events.next();
+	}
+
+	/**
+	 * Compose the node starting with this event, reading on to its end.
+	 */
+	private Node compose(Event event) {
+
+		if (event instanceof AliasEvent) {
+			String anchor = ((AliasEvent) event).getAnchor();
+
+			if (!anchors.containsKey(anchor))
+				throw new YAMLException("Unknown alias " + anchor); //$NON-NLS-1$
+
+			return anchors.get(anchor);
+		}
+
+		if (event instanceof ScalarEvent) {
+			ScalarEvent scalar = (ScalarEvent) event;
+			Tag tag = isImplicit(scalar.getTag())
+					? resolver.resolve(NodeId.scalar, scalar.getValue(), scalar.getImplicit().canOmitTagInPlainScalar())
+					: new Tag(scalar.getTag());
+
+			return remember(event, new ScalarNode(tag, scalar.getValue(), event.getStartMark(), event.getEndMark(), DumperOptions.ScalarStyle.PLAIN));
+		}
+
+		if (event instanceof SequenceStartEvent) {
+			List<Node> items = new ArrayList<>();
+			SequenceNode node = new SequenceNode(collectionTag((CollectionStartEvent) event, NodeId.sequence), items, DumperOptions.FlowStyle.AUTO);
+			remember(event, node);
+
+			for (Event next = nextEvent(); !(next instanceof SequenceEndEvent); next = nextEvent())
+				items.add(compose(next));
+
+			return node;
+		}
+
+		if (event instanceof MappingStartEvent) {
+			List<NodeTuple> tuples = new ArrayList<>();
+			MappingNode node = new MappingNode(collectionTag((CollectionStartEvent) event, NodeId.mapping), tuples, DumperOptions.FlowStyle.AUTO);
+			remember(event, node);
+
+			for (Event next = nextEvent(); !(next instanceof MappingEndEvent); next = nextEvent()) {
+				Node key = compose(next);
+
+				if (Tag.MERGE.equals(key.getTag()))
+					node.setMerged(true);
+
+				tuples.add(new NodeTuple(key, compose(nextEvent())));
+			}
+			return node;
+		}
+
+		throw new YAMLException("Unexpected " + event); //$NON-NLS-1$
+	}
+
+	private Tag collectionTag(CollectionStartEvent event, NodeId id) {
+
+		return isImplicit(event.getTag()) ? resolver.resolve(id, null, event.getImplicit()) : new Tag(event.getTag());
+	}
+
+	private static boolean isImplicit(String tag) {
+
+		return tag == null || tag.equals("!"); //$NON-NLS-1$
+	}
+
+	private Node remember(Event event, Node node) {
+
+		String anchor = ((NodeEvent) event).getAnchor();
+
+		if (anchor != null)
+			anchors.put(anchor, node);
+
+		return node;
+	}
+
+	/**
+	 * Builds one node at a time, as Yaml.load builds a document.
+	 *
+	 * The LoaderOptions constructor is the one both
+	 * SnakeYAML 1.27 and 2.x provide.
+	 */
+	private static final class Builder extends SafeConstructor {
+
+		Builder() {
+
+			super(new LoaderOptions());
+		}
+
+		Object build(Node node) {
+
+			return constructDocument(node);
+		}
+	}
+}
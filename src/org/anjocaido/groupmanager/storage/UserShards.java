@@ -0,0 +1,193 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.storage;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.anjocaido.groupmanager.data.User;
+import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
+
+/**
+ * A worlds Users split across many small files, by the
+ * first two characters of their UUID, in place of one users.yml.
+ *
+ * Each file has the same layout as a users.yml. We remember which
+ * Users each file held when last read or written, so a save
+ * only rewrites the files holding a changed, added or removed User.
+ *
+ * @author ElgarL
+ */
+final class UserShards {
+
+	static final String FOLDER = "users"; //$NON-NLS-1$
+	private static final String EXTENSION = ".yml"; //$NON-NLS-1$
+
+	private final File folder;
+	private final Map<String, Set<String>> saved = new ConcurrentHashMap<>();
+	/**
+	 * Files whose Users we don't know, to be rewritten (or deleted) by the next save.
+	 */
+	private final Set<String> stale = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * @param folder	the folder holding the files.
+	 */
+	UserShards(File folder) {
+
+		this.folder = folder;
+	}
+
+	/**
+	 * The file a User belongs in.
+	 *
+	 * @param key	the lower case UUID (or name) of the User.
+	 * @return the name of the file, without extension.
+	 */
+	static String getShard(String key) {
+
+		if (key.length() >= 2 && Character.digit(key.charAt(0), 16) >= 0 && Character.digit(key.charAt(1), 16) >= 0)
+			return key.substring(0, 2);
+
+		// Names (offline mode) are spread by their hash instead.
+		return String.format("%02x", key.hashCode() & 0xff); //$NON-NLS-1$
+	}
+
+	/**
+	 * @param file	a file from the folder.
+	 * @return its name, without extension.
+	 */
+	static String getShard(File file) {
+
+		String name = file.getName();
+
+		return name.substring(0, name.length() - EXTENSION.length());
+	}
+
+	/**
+	 * @param shard	the name of a file, without extension.
+	 * @return the file.
+	 */
+	File getFile(String shard) {
+
+		return new File(folder, shard + EXTENSION);
+	}
+
+	/**
+	 * Every users file in a folder, in name order.
+	 *
+	 * @param folder	the folder to list.
+	 * @return the files, empty if none (or no folder).
+	 */
+	static File[] listFiles(File folder) {
+
+		File[] files = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(EXTENSION));
+
+		if (files == null)
+			return new File[0];
+
+		Arrays.sort(files);
+		return files;
+	}
+
+	/**
+	 * When the Users were last written, by us or anyone else.
+	 *
+	 * @param usersFile	a users.yml, or a folder of users files.
+	 * @return the newest modified time, 0 if there are no files.
+	 */
+	static long getTimeStamp(File usersFile) {
+
+		if (!usersFile.isDirectory())
+			return usersFile.lastModified();
+
+		long newest = 0;
+
+		for (File file : listFiles(usersFile))
+			newest = Math.max(newest, file.lastModified());
+
+		return newest;
+	}
+
+	/**
+	 * Record the Users a file holds, once read or written.
+	 *
+	 * @param shard	the name of the file, without extension.
+	 * @param keys	the lower case UUIDs of its Users.
+	 */
+	void setSaved(String shard, Set<String> keys) {
+
+		stale.remove(shard);
+
+		if (keys.isEmpty())
+			saved.remove(shard);
+		else
+			saved.put(shard, Collections.unmodifiableSet(keys));
+	}
+
+	/**
+	 * Treat every file already in the folder as out of date.
+	 * Used when converting from a users.yml, as files left
+	 * from before may still hold Users removed since.
+	 */
+	void markAllStale() {
+
+		for (File file : listFiles(folder))
+			stale.add(getShard(file));
+	}
+
+	/**
+	 * The files which no longer match the Users in memory.
+	 *
+	 * Any stale file, any holding a changed User, one which was removed,
+	 * or one which belongs in another file.
+	 *
+	 * @param dataHolder	the world the Users belong to.
+	 * @return names of the files to rewrite.
+	 */
+	Set<String> getDirty(WorldDataHolder dataHolder) {
+
+		Set<String> dirty = new HashSet<>(stale);
+
+		for (User user : dataHolder.getUsers().values()) {
+			if (user.isChanged())
+				dirty.add(getShard(user.getUUID().toLowerCase()));
+		}
+
+		// Only an added or removed User sets this, so we only look for removals when we must.
+		if (dataHolder.getUsersObject().isUsersChanged()) {
+			for (Map.Entry<String, Set<String>> entry : saved.entrySet()) {
+				if (dirty.contains(entry.getKey()))
+					continue;
+
+				for (String key : entry.getValue()) {
+					if (!dataHolder.getUsers().containsKey(key) || !entry.getKey().equals(getShard(key))) {
+						dirty.add(entry.getKey());
+						break;
+					}
+				}
+			}
+		}
+		return dirty;
+	}
+}
@@ -181,6 +181,17 @@ public class Statements {
 		return prop.getProperty("SELECT_ALL");
 	}
 
+	/**
+	 * Falls back to a portable query for SQL files
+	 * saved before SELECT_USER was added.
+	 * 
+	 * @return the SELECT_USER
+	 */
+	public String getSelectUser() {
+
+		return prop.getProperty("SELECT_USER", "SELECT * FROM %s WHERE UUID = ? AND TIMESTAMP > ?;");
+	}
+
 	/**
 	 * @return the SELECT_IS_EMPTY
 	 */
@@ -0,0 +1,344 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.anjocaido.groupmanager.GroupManager;
+import org.bukkit.Bukkit;
+
+/**
+ * The threads GroupManager loads, saves and computes on,
+ * kept apart from the shared common pool.
+ *
+ * Bounded in threads and queued work. When the queue is full
+ * the submitting thread runs the work itself, which slows
+ * whoever is submitting rather than dropping anything.
+ * The server main thread is never slowed this way. Its work
+ * waits in an overflow queue, run as each worker finishes a task.
+ *
+ * Work submitted from one of our own threads (a load waiting
+ * on another) runs straight away on that thread, so tasks
+ * waiting on each other can never fill the pool.
+ *
+ * While stopped, work runs on the submitting thread.
+ *
+ * @author ElgarL
+ */
+public class GMExecutor implements Executor {
+
+	private static volatile GMExecutor instance;
+
+	private volatile ThreadPoolExecutor pool = null;
+	/**
+	 * Work from the main thread which found the queue full.
+	 */
+	private final Queue<Runnable> overflow = new ConcurrentLinkedQueue<>();
+
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder inline = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final LongAdder runNanos = new LongAdder();
+	private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+	private GMExecutor() {}
+
+	public static GMExecutor getInstance() {
+
+		if (instance == null) {
+			synchronized (GMExecutor.class) {
+				if (instance == null) {
+					instance = new GMExecutor();
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Start the worker threads, if not already running.
+	 *
+	 * @param threads	maximum number of worker threads.
+	 * @param queueSize	maximum tasks waiting for a thread.
+	 */
+	public synchronized void start(int threads, int queueSize) {
+
+		if (pool != null)
+			return;
+
+		AtomicInteger count = new AtomicInteger();
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+				runnable -> new Worker(runnable, "GroupManager-IO-" + count.incrementAndGet()), //$NON-NLS-1$
+				(runnable, full) -> {
+					// Full, or shut down while submitting.
+					rejected.increment();
+
+					if (full.isShutdown() || !isPrimaryThread()) {
+						runnable.run();
+						return;
+					}
+
+					if (overflow.isEmpty())
+						GroupManager.logger.warning("GroupManager IO queue is full, delaying work from the main thread: " + this); //$NON-NLS-1$
+					overflow.add(runnable);
+
+					// In case every worker finished meanwhile.
+					full.getQueue().offer(this::runOverflow);
+				}) {
+
+			@Override
+			protected void afterExecute(Runnable runnable, Throwable thrown) {
+
+				runOverflow();
+			}
+		};
+		executor.allowCoreThreadTimeOut(true);
+
+		pool = executor;
+	}
+
+	/**
+	 * Stop accepting work and wait for any queued to finish.
+	 * Work submitted from now on runs on the submitting thread.
+	 *
+	 * @param timeout	the longest to wait.
+	 * @param unit		the unit of the timeout.
+	 * @return true if all queued work finished in time.
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) {
+
+		ThreadPoolExecutor executor;
+
+		synchronized (this) {
+			executor = pool;
+			pool = null;
+		}
+
+		if (executor == null)
+			return true;
+
+		executor.shutdown();
+		runOverflow();
+
+		// We can't wait on ourselves.
+		if (Thread.currentThread() instanceof Worker)
+			return false;
+
+		try {
+			return executor.awaitTermination(timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if the worker threads are running.
+	 */
+	public boolean isRunning() {
+
+		return pool != null;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+
+		ThreadPoolExecutor executor = pool;
+		submitted.increment();
+
+		if (executor == null || Thread.currentThread() instanceof Worker) {
+			inline.increment();
+			timed(task, System.nanoTime());
+			return;
+		}
+
+		long queued = System.nanoTime();
+		executor.execute(() -> timed(task, queued));
+	}
+
+	/**
+	 * Run any work delayed from the main thread.
+	 */
+	private void runOverflow() {
+
+		Runnable next;
+		while ((next = overflow.poll()) != null)
+			next.run();
+	}
+
+	/**
+	 * @return true if called on the server main thread.
+	 */
+	private static boolean isPrimaryThread() {
+
+		return Bukkit.getServer() != null && Bukkit.isPrimaryThread();
+	}
+
+	/**
+	 * Run a task, recording how long it waited and ran.
+	 */
+	private void timed(Runnable task, long queued) {
+
+		long started = System.nanoTime();
+		long waited = started - queued;
+
+		waitNanos.add(waited);
+		maxWaitNanos.accumulate(waited);
+
+		try {
+			task.run();
+		} finally {
+			runNanos.add(System.nanoTime() - started);
+			completed.increment();
+		}
+	}
+
+	/**
+	 * CompletableFuture.supplyAsync on our threads.
+	 *
+	 * @param supplier	the work to run.
+	 * @return a future completed with its result.
+	 */
+	public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+
+		return CompletableFuture.supplyAsync(supplier, this);
+	}
+
+	/**
+	 * CompletableFuture.runAsync on our threads.
+	 *
+	 * @param runnable	the work to run.
+	 * @return a future completed once it has run.
+	 */
+	public CompletableFuture<Void> runAsync(Runnable runnable) {
+
+		return CompletableFuture.runAsync(runnable, this);
+	}
+
+	/**
+	 * @return tasks waiting for a thread.
+	 */
+	public int getQueueDepth() {
+
+		ThreadPoolExecutor executor = pool;
+
+		return (executor == null) ? 0 : executor.getQueue().size();
+	}
+
+	/**
+	 * @return tasks currently running on our threads.
+	 */
+	public int getActiveCount() {
+
+		ThreadPoolExecutor executor = pool;
+
+		return (executor == null) ? 0 : executor.getActiveCount();
+	}
+
+	/**
+	 * @return the number of tasks submitted.
+	 */
+	public long getSubmitted() {
+
+		return submitted.sum();
+	}
+
+	/**
+	 * @return the number of tasks finished.
+	 */
+	public long getCompleted() {
+
+		return completed.sum();
+	}
+
+	/**
+	 * @return the number of tasks which found the queue full, run by their submitter or delayed if from the main thread.
+	 */
+	public long getRejected() {
+
+		return rejected.sum();
+	}
+
+	/**
+	 * @return the number of tasks run straight away, as submitted from our own threads or while stopped.
+	 */
+	public long getInline() {
+
+		return inline.sum();
+	}
+
+	/**
+	 * @return the average milliseconds a task waited for a thread.
+	 */
+	public double getAverageWaitMillis() {
+
+		long count = completed.sum();
+
+		return (count == 0) ? 0 : waitNanos.sum() / (count * 1000000.0);
+	}
+
+	/**
+	 * @return the longest milliseconds any task waited for a thread.
+	 */
+	public double getMaxWaitMillis() {
+
+		return maxWaitNanos.get() / 1000000.0;
+	}
+
+	/**
+	 * @return the average milliseconds a task ran for.
+	 */
+	public double getAverageRunMillis() {
+
+		long count = completed.sum();
+
+		return (count == 0) ? 0 : runNanos.sum() / (count * 1000000.0);
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("queued: %d, active: %d, submitted: %d, completed: %d, rejected: %d, inline: %d, wait: %.2fms (max %.2fms), run: %.2fms", //$NON-NLS-1$
+				getQueueDepth(), getActiveCount(), getSubmitted(), getCompleted(), getRejected(), getInline(), getAverageWaitMillis(), getMaxWaitMillis(), getAverageRunMillis());
+	}
+
+	/**
+	 * Marks our threads, so work they submit runs inline.
+	 */
+	private static final class Worker extends Thread {
+
+		Worker(Runnable runnable, String name) {
+
+			super(runnable, name);
+			setDaemon(true);
+		}
+	}
+}
@@ -25,6 +25,15 @@ import org.anjocaido.groupmanager.data.DataUnit;
  */
 public class PermissionCheckResult {
 
+	/*
+	 * Primitive result codes for the allocation free check methods.
+	 * Each matches the ordinal of the equivalent Type.
+	 */
+	public static final int RESULT_EXCEPTION = 0;
+	public static final int RESULT_NEGATION = 1;
+	public static final int RESULT_FOUND = 2;
+	public static final int RESULT_NOTFOUND = 3;
+
 	/**
 	 * It should be the owner of the access level found.
 	 * 
@@ -75,6 +84,24 @@ public class PermissionCheckResult {
 		 * when type is
 		 * NOTFOUND
 		 */
-		NOTFOUND
+		NOTFOUND;
+
+		/**
+		 * @param code a primitive result code.
+		 * @return the Type for this code.
+		 */
+		public static Type fromCode(int code) {
+
+			return values()[code];
+		}
+	}
+
+	/**
+	 * @param code a primitive result code.
+	 * @return true if the code allows the permission (EXCEPTION or FOUND).
+	 */
+	public static boolean isAllowed(int code) {
+
+		return code == RESULT_EXCEPTION || code == RESULT_FOUND;
 	}
 }
@@ -0,0 +1,417 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dot segmented index of the permission nodes held by a single DataUnit.
+ *
+ * Nodes are stored case-insensitively, one level per segment.
+ * Exact nodes ('a.b.c') are held on the node for their last segment.
+ * Wildcards ('a.b.*' or 'a.b*') are held on the node for their last
+ * complete segment, keyed by any partial segment before the '*'.
+ * Levels left empty by a remove are pruned.
+ *
+ * A lookup walks the segments of the asked permission once, so its cost
+ * depends on the depth of the node rather than the number of nodes held.
+ * Segments are compared in place against the asked permission,
+ * so a lookup allocates nothing.
+ * It returns the same node a linear scan using
+ * AnjoPermissionsHandler.comparePermissionString would find first.
+ *
+ * @author ElgarL
+ */
+public class PermissionTrie {
+
+	private static final String NO_OFFLINE_PERMS = "groupmanager.noofflineperms"; //$NON-NLS-1$
+
+	private static final StringPermissionComparator comparator = new StringPermissionComparator();
+
+	/**
+	 * Reused lookup key for each thread calling find.
+	 */
+	private static final ThreadLocal<Probe> probes = ThreadLocal.withInitial(Probe::new);
+
+	private final Node root = new Node(null, null);
+
+	/**
+	 * Index a permission node.
+	 *
+	 * @param permission	the node as stored on the DataUnit.
+	 */
+	public synchronized void add(String permission) {
+
+		Entries entries = locate(permission, true);
+
+		if (entries != null)
+			entries.set(permission.charAt(0), permission);
+	}
+
+	/**
+	 * Remove a permission node from the index.
+	 *
+	 * @param permission	the node as stored on the DataUnit.
+	 */
+	public synchronized void remove(String permission) {
+
+		Entries entries = locate(permission, false);
+
+		if (entries == null)
+			return;
+
+		entries.set(permission.charAt(0), null);
+
+		if (!entries.isEmpty())
+			return;
+
+		Node node = entries.owner;
+
+		if (entries.key != null)
+			node.partials.remove(entries.key, entries);
+
+		// Drop every level this remove has left empty.
+		while (node.parent != null && node.isEmpty()) {
+			node.parent.children.remove(node.segment, node);
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * Remove all nodes from the index.
+	 */
+	public synchronized void clear() {
+
+		root.children.clear();
+		root.partials.clear();
+		root.exact.clear();
+		root.star.clear();
+		root.bare.clear();
+	}
+
+	/**
+	 * Find the stored node which decides this permission.
+	 *
+	 * Where more than one node matches, the first in
+	 * StringPermissionComparator order is returned
+	 * ('+' nodes, then '-' nodes, then plain nodes).
+	 *
+	 * @param permission	the permission being checked.
+	 * @return the matching stored node, or null if none match.
+	 */
+	public String find(String permission) {
+
+		if (permission == null || permission.isEmpty())
+			return null;
+
+		/*
+		 * The offline node is only ever matched exactly.
+		 */
+		if (NO_OFFLINE_PERMS.equals(permission)) {
+			Entries entries = locate(permission, false);
+			return (entries != null && permission.equals(entries.node)) ? entries.node : null;
+		}
+
+		// A leading '+' or '-' on the asked node is ignored.
+		int start = (permission.charAt(0) == '+' || permission.charAt(0) == '-') ? 1 : 0;
+
+		Probe probe = probes.get();
+		String best = null;
+		Node node = root;
+
+		while (true) {
+			int dot = permission.indexOf('.', start);
+			int end = (dot < 0) ? permission.length() : dot;
+
+			// Any wildcard on this level with a matching partial segment.
+			best = first(best, node.star.best());
+			best = first(best, node.bare.best());
+
+			boolean partials = !node.partials.isEmpty();
+
+			// Grow the segment one character at a time, testing each partial.
+			probe.reset(permission, start);
+			while (probe.end < end) {
+				probe.extend();
+				if (partials) {
+					Entries partial = node.partials.get(probe);
+					if (partial != null)
+						best = first(best, partial.best());
+				}
+			}
+
+			Node child = node.children.get(probe);
+
+			if (dot < 0) {
+				// Last segment, test for an exact node.
+				if (child != null)
+					best = first(best, child.exact.best());
+				break;
+			}
+
+			if (child == null)
+				break;
+
+			node = child;
+			start = dot + 1;
+		}
+		probe.reset(null, 0);
+		return best;
+	}
+
+	/**
+	 * Find the Entries holding this permission node.
+	 *
+	 * @param permission	a stored node.
+	 * @param create		true to create any missing levels.
+	 * @return the Entries or null.
+	 */
+	private Entries locate(String permission, boolean create) {
+
+		if (permission == null || permission.isEmpty())
+			return null;
+
+		int offset = (permission.charAt(0) == '+' || permission.charAt(0) == '-') ? 1 : 0;
+		String body = fold(permission.substring(offset));
+
+		boolean wildcard = body.isEmpty() || body.endsWith("*"); //$NON-NLS-1$
+
+		// An un-prefixed empty node never matches anything.
+		if (body.isEmpty() && offset == 0)
+			return null;
+
+		int end = wildcard ? body.lastIndexOf('.', body.length() - 2) : body.length();
+
+		Node node = root;
+		int start = 0;
+
+		// Walk each complete segment.
+		while (end >= 0 && start <= end) {
+			int dot = body.indexOf('.', start);
+			if (dot < 0 || dot > end)
+				dot = end;
+
+			String segment = body.substring(start, dot);
+			Node child = node.children.get(segment);
+
+			if (child == null) {
+				if (!create)
+					return null;
+				Node parent = node;
+				child = node.children.computeIfAbsent(segment, k -> new Node(parent, k));
+			}
+			node = child;
+			start = dot + 1;
+
+			if (dot == end)
+				break;
+		}
+
+		if (!wildcard)
+			return node.exact;
+
+		/*
+		 * A bare '+'/'-' and '+*' remain separate nodes.
+		 * Any other partial segment ('b*') is keyed on the text before the '*'.
+		 */
+		String partial = body.substring(end + 1);
+
+		if (partial.isEmpty())
+			return node.bare;
+		if (partial.equals("*")) //$NON-NLS-1$
+			return node.star;
+
+		String prefix = partial.substring(0, partial.length() - 1);
+		Entries entries = node.partials.get(prefix);
+
+		if (entries == null && create) {
+			Node owner = node;
+			entries = node.partials.computeIfAbsent(prefix, k -> new Entries(owner, k));
+		}
+		return entries;
+	}
+
+	/**
+	 * Return whichever node would be found first in a sorted permission list.
+	 */
+	private static String first(String current, String candidate) {
+
+		if (candidate == null)
+			return current;
+		if (current == null)
+			return candidate;
+		return (comparator.compare(candidate, current) < 0) ? candidate : current;
+	}
+
+	/**
+	 * Fold characters the same way String.compareToIgnoreCase does.
+	 */
+	private static String fold(String node) {
+
+		char[] chars = node.toCharArray();
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = fold(chars[i]);
+		return new String(chars);
+	}
+
+	private static char fold(char c) {
+
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * One level of the index.
+	 */
+	private static final class Node {
+
+		final Node parent;
+		final String segment;
+
+		final Map<String, Node> children = new ConcurrentHashMap<>();
+		/**
+		 * Partial segment wildcards ('a.b*'), keyed by the text before the '*'.
+		 */
+		final Map<String, Entries> partials = new ConcurrentHashMap<>();
+		final Entries exact = new Entries(this, null);
+		final Entries star = new Entries(this, null);
+		final Entries bare = new Entries(this, null);
+
+		Node(Node parent, String segment) {
+
+			this.parent = parent;
+			this.segment = segment;
+		}
+
+		boolean isEmpty() {
+
+			return children.isEmpty() && partials.isEmpty() && exact.isEmpty() && star.isEmpty() && bare.isEmpty();
+		}
+	}
+
+	/**
+	 * The exception, negation and plain versions of a single node.
+	 */
+	private static final class Entries {
+
+		final Node owner;
+		/**
+		 * For partial segment wildcards, the key in the owner's partials.
+		 */
+		final String key;
+
+		volatile String exception;
+		volatile String negation;
+		volatile String node;
+
+		Entries(Node owner, String key) {
+
+			this.owner = owner;
+			this.key = key;
+		}
+
+		void set(char marker, String permission) {
+
+			if (marker == '+')
+				exception = permission;
+			else if (marker == '-')
+				negation = permission;
+			else
+				node = permission;
+		}
+
+		String best() {
+
+			String result = exception;
+			if (result == null)
+				result = negation;
+			if (result == null)
+				result = node;
+			return result;
+		}
+
+		boolean isEmpty() {
+
+			return exception == null && negation == null && node == null;
+		}
+
+		void clear() {
+
+			exception = null;
+			negation = null;
+			node = null;
+		}
+	}
+
+	/**
+	 * A segment of an asked permission, used as a map key in place of a substring.
+	 *
+	 * Its hash and equality are those of the folded segment, and the
+	 * concurrent maps call equals on the asked key, so a Probe finds the
+	 * stored String without one being built.
+	 */
+	private static final class Probe {
+
+		String text;
+		int start;
+		int end;
+		int hash;
+
+		void reset(String text, int start) {
+
+			this.text = text;
+			this.start = start;
+			this.end = start;
+			this.hash = 0;
+		}
+
+		/**
+		 * Take one more character of the segment.
+		 */
+		Probe extend() {
+
+			hash = 31 * hash + fold(text.charAt(end++));
+			return this;
+		}
+
+		@Override
+		public int hashCode() {
+
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof String))
+				return false;
+
+			String key = (String) obj;
+			int length = end - start;
+
+			if (key.length() != length)
+				return false;
+
+			for (int i = 0; i < length; i++) {
+				if (fold(text.charAt(start + i)) != key.charAt(i))
+					return false;
+			}
+			return true;
+		}
+	}
+}
@@ -25,8 +25,14 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.time.Instant;
@@ -90,6 +96,50 @@ public abstract class Tasks {
 		InputStream in = new FileInputStream(src);
 		copy(in, dst);
 	}
+
+	/**
+	 * Replace a file, as UTF-8 text, without ever leaving it part written.
+	 * 
+	 * The text is written to a temporary file beside it and synced to disk,
+	 * then moved over the original in one step. If anything fails
+	 * the original is left untouched.
+	 * 
+	 * @param file		the file to replace.
+	 * @param content	writes the new text.
+	 * @throws IOException
+	 */
+	public static void writeAtomic(File file, TextContent content) throws IOException {
+
+		File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp"); //$NON-NLS-1$
+
+		try {
+			try (FileOutputStream stream = new FileOutputStream(temp);
+					Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+
+				content.write(out);
+				out.flush();
+				stream.getFD().sync();
+			}
+
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/**
+	 * Writes the text of a file for {@link Tasks#writeAtomic(File, TextContent)}.
+	 */
+	@FunctionalInterface
+	public interface TextContent {
+
+		void write(Writer out) throws IOException;
+	}
 	
 	public static void saveResource(Plugin plugin, File file) {
 		
@@ -0,0 +1,123 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.anjocaido.groupmanager.utils.PermissionCheckResult;
+import org.bukkit.entity.Player;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * checkPermissionCode must not allocate once a Players snapshot
+ * is built, for held nodes and for nodes already in the miss cache.
+ *
+ * The first miss for a node is not covered. Remembering
+ * it in the MissCache allocates an entry.
+ *
+ * @author ElgarL
+ */
+public class AllocationTest {
+
+	private static final int WARMUP = 20000;
+	private static final int CHECKS = 100000;
+
+	private com.sun.management.ThreadMXBean threads;
+	private TestWorld world;
+	private Player player;
+	private String[] held;
+	private String[] missing;
+
+	@Before
+	public void setup() {
+
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		TestServer.install();
+		world = new TestWorld(12, 3, 10, 7L);
+		player = TestServer.createPlayer(UUID.fromString(world.user.getUUID()), world.user.getLastName());
+
+		List<String> found = new ArrayList<>();
+		List<String> notFound = new ArrayList<>();
+
+		for (int q = 0; q < 500 && (found.size() < 32 || notFound.size() < 32); q++) {
+			String node = world.randomNode(false).replace("*", "node0"); //$NON-NLS-1$ //$NON-NLS-2$
+			int result = world.handler.checkPermissionCode(player, node);
+
+			if (result == PermissionCheckResult.RESULT_FOUND && found.size() < 32 && !found.contains(node))
+				found.add(node);
+			else if (result == PermissionCheckResult.RESULT_NOTFOUND && notFound.size() < 32 && !notFound.contains(node))
+				notFound.add(node);
+		}
+		for (int n = 0; notFound.size() < 32; n++)
+			notFound.add("unheld.node" + n); //$NON-NLS-1$
+
+		assertTrue("No held nodes generated", !found.isEmpty()); //$NON-NLS-1$
+
+		held = found.toArray(new String[0]);
+		missing = notFound.toArray(new String[0]);
+	}
+
+	@Test
+	public void heldNodesDoNotAllocate() {
+
+		assertEquals(0, allocated(held));
+	}
+
+	@Test
+	public void cachedMissesDoNotAllocate() {
+
+		assertEquals(0, allocated(missing));
+	}
+
+	/**
+	 * Bytes allocated by CHECKS checks of nodes, after a warm up.
+	 */
+	private long allocated(String[] nodes) {
+
+		int sink = 0;
+
+		for (int i = 0; i < WARMUP; i++)
+			sink += world.handler.checkPermissionCode(player, nodes[i % nodes.length]);
+
+		long id = Thread.currentThread().getId();
+
+		// Reading the counter may itself allocate, so measure that first.
+		long start = threads.getThreadAllocatedBytes(id);
+		long overhead = threads.getThreadAllocatedBytes(id) - start;
+
+		start = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < CHECKS; i++)
+			sink += world.handler.checkPermissionCode(player, nodes[i % nodes.length]);
+		long used = threads.getThreadAllocatedBytes(id) - start - overhead;
+
+		assertTrue(sink >= 0);
+		return Math.max(0, used);
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.utils.PermissionCheckResult;
+import org.bukkit.entity.Player;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Permission checks from several threads while
+ * other threads keep altering the same User and Groups.
+ *
+ * @author ElgarL
+ */
+public class ConcurrentCheckTest {
+
+	private static final String STABLE = "test.stable"; //$NON-NLS-1$
+	private static final String NEVER = "test.never"; //$NON-NLS-1$
+	private static final String SUBGROUP = "test.subgroup"; //$NON-NLS-1$
+	private static final String INHERITED = "test.inherited"; //$NON-NLS-1$
+
+	private static final int READERS = 3;
+	private static final int WRITES = 2000;
+
+	private TestWorld world;
+	private Player player;
+	private Group primary;
+	private Group inherited;
+	private final List<Group> subGroups = new ArrayList<>();
+
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+
+		TestServer.install();
+
+		world = new TestWorld(10, 2, 10, 42L);
+		player = TestServer.createPlayer(UUID.fromString(world.user.getUUID()), world.user.getLastName());
+
+		primary = world.user.getGroup();
+		primary.addPermission(STABLE);
+
+		for (int i = 0; i < 2; i++) {
+			Group subGroup = world.holder.createGroup("testsubgroup" + i); //$NON-NLS-1$
+			subGroup.addPermission(SUBGROUP + i);
+			subGroups.add(subGroup);
+		}
+
+		inherited = world.holder.createGroup("testinherited"); //$NON-NLS-1$
+		inherited.addPermission(INHERITED);
+
+		executor = Executors.newFixedThreadPool(READERS + 2);
+	}
+
+	@After
+	public void shutdown() {
+
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Readers must never see a ConcurrentModificationException,
+	 * or a wrong answer for a node which never changes,
+	 * while two writers alter the User and its primary Group.
+	 */
+	@Test
+	public void readersSurviveConcurrentWrites() throws Exception {
+
+		AtomicBoolean writing = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> tasks = new ArrayList<>();
+
+		for (int r = 0; r < READERS; r++) {
+			tasks.add(executor.submit((Callable<Void>) () -> {
+
+				start.await();
+				while (writing.get()) {
+					assertEquals(PermissionCheckResult.Type.FOUND, world.handler.checkFullGMPermission(world.user, STABLE, false).resultType);
+					assertEquals(PermissionCheckResult.Type.NOTFOUND, world.handler.checkFullGMPermission(world.user, NEVER, false).resultType);
+					assertTrue(world.handler.permission(player, STABLE));
+
+					// These change under the writers, so any answer is correct.
+					world.handler.permission(player, SUBGROUP + 0);
+					world.handler.permission(player, INHERITED);
+					world.handler.getAllPlayersPermissions(world.user.getUUID(), false);
+					world.handler.getGroups(world.user.getUUID());
+				}
+				return null;
+			}));
+		}
+
+		// Each writer toggles its own sub-group, one also toggles an inherited group.
+		List<Future<?>> writers = new ArrayList<>();
+		for (int w = 0; w < 2; w++) {
+			Group subGroup = subGroups.get(w);
+			boolean inherits = (w == 0);
+
+			writers.add(executor.submit((Callable<Void>) () -> {
+
+				start.await();
+				for (int i = 0; i < WRITES; i++) {
+					if ((i & 1) == 0) {
+						world.user.addSubGroup(subGroup);
+						if (inherits)
+							primary.addInherits(inherited);
+					} else {
+						world.user.removeSubGroup(subGroup);
+						if (inherits)
+							primary.removeInherits(inherited.getName());
+					}
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		try {
+			for (Future<?> writer : writers)
+				writer.get(60, TimeUnit.SECONDS);
+		} finally {
+			writing.set(false);
+		}
+
+		// Rethrows any failure, including a ConcurrentModificationException.
+		for (Future<?> task : tasks)
+			task.get(60, TimeUnit.SECONDS);
+
+		// Every write ended in a removal, and none were lost.
+		assertTrue(world.user.isSubGroupsEmpty());
+		assertEquals(PermissionCheckResult.Type.NOTFOUND, world.handler.checkFullGMPermission(world.user, SUBGROUP + 1, false).resultType);
+	}
+
+	/**
+	 * Once addSubGroup, removeSubGroup or addInherits returns,
+	 * a check on any thread must see the change.
+	 */
+	@Test
+	public void checksSeeCompletedWrites() throws Exception {
+
+		Group subGroup = subGroups.get(0);
+
+		for (int i = 0; i < 200; i++) {
+			// Warm the snapshot so a stale one would be used.
+			assertEquals(false, checkElsewhere(SUBGROUP + 0));
+			assertEquals(false, checkElsewhere(INHERITED));
+
+			world.user.addSubGroup(subGroup);
+			assertEquals("after addSubGroup", true, checkElsewhere(SUBGROUP + 0)); //$NON-NLS-1$
+
+			world.user.removeSubGroup(subGroup);
+			assertEquals("after removeSubGroup", false, checkElsewhere(SUBGROUP + 0)); //$NON-NLS-1$
+
+			primary.addInherits(inherited);
+			assertEquals("after addInherits", true, checkElsewhere(INHERITED)); //$NON-NLS-1$
+
+			primary.removeInherits(inherited.getName());
+			assertEquals("after removeInherits", false, checkElsewhere(INHERITED)); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Check a node for the Player on another thread.
+	 */
+	private boolean checkElsewhere(String node) throws Exception {
+
+		Callable<Boolean> check = () -> world.handler.permission(player, node);
+		return executor.submit(check).get(10, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Cached inheritance closures must keep the order each
+ * lookup used when it walked the Groups itself.
+ *
+ * a inherits b and c, b inherits d, c inherits e and d.
+ *
+ * @author ElgarL
+ */
+public class InheritanceOrderTest {
+
+	private WorldDataHolder holder;
+	private AnjoPermissionsHandler handler;
+	private Group a, b, c, d, e;
+
+	@Before
+	public void setup() {
+
+		holder = new WorldDataHolder("order"); //$NON-NLS-1$
+		a = holder.createGroup("a"); //$NON-NLS-1$
+		b = holder.createGroup("b"); //$NON-NLS-1$
+		c = holder.createGroup("c"); //$NON-NLS-1$
+		d = holder.createGroup("d"); //$NON-NLS-1$
+		e = holder.createGroup("e"); //$NON-NLS-1$
+		holder.setDefaultGroup(a);
+
+		a.addInherits(b);
+		a.addInherits(c);
+		b.addInherits(d);
+		c.addInherits(e);
+		c.addInherits(d);
+
+		handler = holder.getPermissionsHandler();
+	}
+
+	@Test
+	public void permissionsAreCheckedBreadthFirst() {
+
+		assertEquals(Arrays.asList(a, b, c, d, e), holder.getInheritanceGraph().getClosure(a).getGroups());
+	}
+
+	@Test
+	public void groupsAreListedInStackOrder() {
+
+		assertEquals(Arrays.asList("a", "b", "c", "e", "d"), handler.listAllGroupsInherited(a)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+	}
+
+	@Test
+	public void variablesAreFoundInStackOrder() {
+
+		b.getVariables().addVar("prefix", "[b]"); //$NON-NLS-1$ //$NON-NLS-2$
+		d.getVariables().addVar("prefix", "[d]"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// The last inherited Group is searched first, to its full depth.
+		assertSame(d, handler.nextGroupWithVariable(a, "prefix")); //$NON-NLS-1$
+	}
+}
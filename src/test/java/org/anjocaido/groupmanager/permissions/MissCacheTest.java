@@ -0,0 +1,67 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author ElgarL
+ */
+public class MissCacheTest {
+
+	@Test
+	public void staysWithinCapacity() {
+
+		MissCache.Counters counters = new MissCache.Counters();
+		MissCache cache = new MissCache(4, counters);
+
+		for (int n = 0; n < 100; n++)
+			cache.add("node" + n); //$NON-NLS-1$
+
+		assertEquals(96, counters.evictions.sum());
+
+		int held = 0;
+		for (int n = 0; n < 100; n++)
+			if (cache.contains("node" + n)) //$NON-NLS-1$
+				held++;
+
+		assertEquals(4, held);
+	}
+
+	@Test
+	public void foundNodesGetASecondChance() {
+
+		MissCache cache = new MissCache(4, new MissCache.Counters());
+
+		cache.add("a"); //$NON-NLS-1$
+		cache.add("b"); //$NON-NLS-1$
+		cache.add("c"); //$NON-NLS-1$
+		cache.add("d"); //$NON-NLS-1$
+
+		assertTrue(cache.contains("a")); //$NON-NLS-1$
+		cache.add("e"); //$NON-NLS-1$
+
+		assertTrue(cache.contains("a")); //$NON-NLS-1$
+		assertFalse(cache.contains("b")); //$NON-NLS-1$
+		assertTrue(cache.contains("e")); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.UUID;
+
+import org.anjocaido.groupmanager.utils.PermissionCheckResult;
+import org.junit.Test;
+
+/**
+ * The compiled PermissionSnapshot must answer every
+ * check the same as the {@link ReferenceResolver}.
+ *
+ * @author ElgarL
+ */
+public class PermissionSnapshotTest {
+
+	private static final int QUERIES = 500;
+
+	@Test
+	public void snapshotMatchesReference() {
+
+		for (long seed = 0; seed < 20; seed++) {
+			TestWorld world = new TestWorld(12, 1 + (int) (seed % 4), 8, seed);
+
+			for (int q = 0; q < QUERIES; q++) {
+				String node = world.randomNode(false).replace("*", "node0"); //$NON-NLS-1$ //$NON-NLS-2$
+				assertMatches(world, seed, node);
+				// Case must not matter.
+				assertMatches(world, seed, node.toUpperCase());
+			}
+			assertMatches(world, seed, "plugin0"); //$NON-NLS-1$
+			assertMatches(world, seed, "unheld.node"); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public void snapshotFollowsChanges() {
+
+		TestWorld world = new TestWorld(6, 2, 4, 99L);
+
+		world.groups.get(0).addPermission("-changing.node"); //$NON-NLS-1$
+		assertMatches(world, 99L, "changing.node"); //$NON-NLS-1$
+
+		world.user.addPermission("changing.node"); //$NON-NLS-1$
+		assertMatches(world, 99L, "changing.node"); //$NON-NLS-1$
+
+		world.groups.get(world.groups.size() - 1).addPermission("+changing.*"); //$NON-NLS-1$
+		world.user.addSubGroup(world.groups.get(world.groups.size() - 1));
+		assertMatches(world, 99L, "changing.node"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void unrelatedChangesKeepTheSnapshot() {
+
+		TestWorld world = new TestWorld(6, 2, 4, 5L);
+		PermissionSnapshot snapshot = world.handler.getSnapshot(world.user);
+
+		// A player joining this world, and a change in another world.
+		world.holder.createUser(UUID.randomUUID().toString());
+		new TestWorld(4, 2, 4, 6L).groups.get(0).addPermission("other.node"); //$NON-NLS-1$
+
+		assertSame(snapshot, world.handler.getSnapshot(world.user));
+
+		world.groups.get(0).addPermission("changed.node"); //$NON-NLS-1$
+		assertNotSame(snapshot, world.handler.getSnapshot(world.user));
+	}
+
+	private static void assertMatches(TestWorld world, long seed, String node) {
+
+		PermissionCheckResult expected = ReferenceResolver.resolve(world.handler, world.user, node);
+		PermissionCheckResult actual = world.handler.getSnapshot(world.user).checkPermission(node);
+
+		assertEquals("seed " + seed + " node " + node, expected.resultType, actual.resultType); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.data.User;
+import org.anjocaido.groupmanager.utils.PermissionCheckResult;
+
+/**
+ * The permission check as it was before snapshots,
+ * walking every DataUnit on each call.
+ *
+ * The compiled {@link PermissionSnapshot} must agree with it.
+ * It does not check Bukkit.
+ *
+ * @author ElgarL
+ */
+final class ReferenceResolver {
+
+	private ReferenceResolver() {}
+
+	/**
+	 * Check user and groups with inheritance.
+	 *
+	 * @param handler			the world to check in.
+	 * @param user				the User to check.
+	 * @param targetPermission	the node to test.
+	 * @return PermissionCheckResult
+	 */
+	static PermissionCheckResult resolve(AnjoPermissionsHandler handler, User user, String targetPermission) {
+
+		PermissionCheckResult result = new PermissionCheckResult();
+		result.accessLevel = targetPermission;
+		result.resultType = PermissionCheckResult.Type.NOTFOUND;
+
+		PermissionCheckResult resultUser = handler.checkUserOnlyPermission(user, targetPermission);
+		if (resultUser.resultType != PermissionCheckResult.Type.NOTFOUND) {
+
+			resultUser.accessLevel = targetPermission;
+
+			if (resultUser.resultType == PermissionCheckResult.Type.EXCEPTION) {
+				return resultUser;
+			}
+
+			result = resultUser;
+		}
+
+		PermissionCheckResult resultGroup = handler.checkGroupPermissionWithInheritance(user.getGroup(), targetPermission);
+		if (resultGroup.resultType != PermissionCheckResult.Type.NOTFOUND) {
+
+			resultGroup.accessLevel = targetPermission;
+
+			if (resultGroup.resultType == PermissionCheckResult.Type.EXCEPTION) {
+				return resultGroup;
+			}
+
+			// Do not override higher level permissions with negations.
+			if (result.resultType == PermissionCheckResult.Type.NOTFOUND) {
+				result = resultGroup;
+			}
+		}
+
+		// Do we have a high level negation?
+		boolean negated = (result.resultType == PermissionCheckResult.Type.NEGATION);
+
+		for (Group subGroup : user.subGroupListCopy()) {
+
+			PermissionCheckResult resultSubGroup = handler.checkGroupPermissionWithInheritance(subGroup, targetPermission);
+			if (resultSubGroup.resultType != PermissionCheckResult.Type.NOTFOUND) {
+
+				resultSubGroup.accessLevel = targetPermission;
+
+				// Allow exceptions to override higher level negations
+				// but low level negations can not remove higher level permissions.
+				if (resultSubGroup.resultType == PermissionCheckResult.Type.EXCEPTION) {
+
+					return resultSubGroup;
+
+				} else if ((resultSubGroup.resultType == PermissionCheckResult.Type.FOUND) && (result.resultType != PermissionCheckResult.Type.NEGATION) && !negated) {
+
+					result = resultSubGroup;
+
+				} else if ((resultSubGroup.resultType == PermissionCheckResult.Type.NEGATION) && !negated) {
+
+					result = resultSubGroup;
+				}
+			}
+		}
+		return result;
+	}
+}
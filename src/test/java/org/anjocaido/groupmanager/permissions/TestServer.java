@@ -0,0 +1,102 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+
+/**
+ * The minimum of a Bukkit Server needed to check Player permissions in tests.
+ *
+ * The Server reports online mode and nothing else. Players hold
+ * no Bukkit permissions, so every check is answered by GroupManager.
+ *
+ * @author ElgarL
+ */
+final class TestServer {
+
+	private static final Logger logger = Logger.getLogger("GroupManager-Test"); //$NON-NLS-1$
+
+	private TestServer() {}
+
+	/**
+	 * Install the proxy Server, unless one is already set.
+	 */
+	static synchronized void install() {
+
+		if (Bukkit.getServer() != null)
+			return;
+
+		Bukkit.setServer((Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[] { Server.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+			case "getLogger": //$NON-NLS-1$
+				return logger;
+			case "getOnlineMode": //$NON-NLS-1$
+				return true;
+			case "getName": //$NON-NLS-1$
+			case "getVersion": //$NON-NLS-1$
+			case "getBukkitVersion": //$NON-NLS-1$
+				return "Test"; //$NON-NLS-1$
+			case "hashCode": //$NON-NLS-1$
+				return System.identityHashCode(proxy);
+			case "equals": //$NON-NLS-1$
+				return proxy == args[0];
+			}
+			return null;
+		}));
+	}
+
+	/**
+	 * Create an online Player proxy.
+	 *
+	 * @param uuid	the UUID of the Player.
+	 * @param name	the name of the Player.
+	 * @return a Player.
+	 */
+	static Player createPlayer(UUID uuid, String name) {
+
+		return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] { Player.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+			case "getUniqueId": //$NON-NLS-1$
+				return uuid;
+			case "getName": //$NON-NLS-1$
+				return name;
+			case "isOnline": //$NON-NLS-1$
+				return true;
+			case "hasPermission": //$NON-NLS-1$
+				return false;
+			case "hashCode": //$NON-NLS-1$
+				return uuid.hashCode();
+			case "equals": //$NON-NLS-1$
+				return proxy == args[0];
+			case "toString": //$NON-NLS-1$
+				return name;
+			}
+			return null;
+		});
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ *  GroupManager - A plug-in for Spigot/Bukkit based Minecraft servers.
+ *  Copyright (C) 2020  ElgarL
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.anjocaido.groupmanager.permissions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.data.User;
+import org.anjocaido.groupmanager.dataholder.WorldDataHolder;
+
+/**
+ * A small generated world of Groups and one User, built without a server.
+ *
+ * Groups inherit in chains, the User is in the first chain and
+ * has the heads of the next chains as sub-groups. Nodes are drawn
+ * from a small tree so exact nodes, wildcards, negations and
+ * exceptions regularly overlap.
+ *
+ * @author ElgarL
+ */
+final class TestWorld {
+
+	final WorldDataHolder holder;
+	final AnjoPermissionsHandler handler;
+	final List<Group> groups = new ArrayList<>();
+	final User user;
+
+	private final Random random;
+
+	/**
+	 * @param groupCount	number of groups.
+	 * @param depth			length of each inheritance chain.
+	 * @param nodes			permission nodes per group.
+	 * @param seed			random seed.
+	 */
+	TestWorld(int groupCount, int depth, int nodes, long seed) {
+
+		random = new Random(seed);
+		holder = new WorldDataHolder("test" + seed); //$NON-NLS-1$
+
+		for (int i = 0; i < groupCount; i++)
+			groups.add(holder.createGroup("group" + i)); //$NON-NLS-1$
+		holder.setDefaultGroup(groups.get(0));
+
+		for (int i = 0; i < groupCount; i++) {
+			if ((i + 1) < groupCount && (i + 1) % depth != 0)
+				groups.get(i).addInherits(groups.get(i + 1));
+
+			for (int n = 0; n < nodes; n++)
+				groups.get(i).addPermission(randomNode(true));
+		}
+
+		user = holder.createUser(UUID.nameUUIDFromBytes(("test" + seed).getBytes()).toString()); //$NON-NLS-1$
+		user.setLastName("Test"); //$NON-NLS-1$
+
+		for (int n = 0; n < Math.max(1, nodes / 4); n++)
+			user.addPermission(randomNode(true));
+
+		for (int i = depth; i < groupCount && i <= depth * 2; i += depth)
+			user.addSubGroup(groups.get(i));
+
+		handler = holder.getPermissionsHandler();
+	}
+
+	/**
+	 * Generate a node, a wildcard a quarter of the time
+	 * and, if signed, sometimes negated or an exception.
+	 *
+	 * @param signed	allow a leading '+' or '-'.
+	 * @return a permission node.
+	 */
+	String randomNode(boolean signed) {
+
+		String prefix = ""; //$NON-NLS-1$
+		if (signed) {
+			int roll = random.nextInt(100);
+			if (roll < 5)
+				prefix = "+"; //$NON-NLS-1$
+			else if (roll < 20)
+				prefix = "-"; //$NON-NLS-1$
+		}
+
+		String plugin = "plugin" + random.nextInt(4); //$NON-NLS-1$
+		switch (random.nextInt(8)) {
+
+		case 0:
+			return prefix + plugin + ".*"; //$NON-NLS-1$
+		case 1:
+			return prefix + plugin + ".sub" + random.nextInt(3) + ".*"; //$NON-NLS-1$ //$NON-NLS-2$
+		default:
+			return prefix + plugin + ".sub" + random.nextInt(3) + ".node" + random.nextInt(5); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}